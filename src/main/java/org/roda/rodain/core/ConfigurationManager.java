@@ -15,14 +15,18 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.filechooser.FileSystemView;
+import javax.xml.validation.Schema;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -33,6 +37,7 @@ import org.roda.rodain.core.rules.filters.IgnoredFilter;
 import org.roda.rodain.core.utils.FolderBasedUTF8Control;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.joran.JoranConfigurator;
@@ -59,6 +64,11 @@ public class ConfigurationManager {
   private static Locale locale;
 
   private static Set<Path> allSchemas;
+  // the content of the templates, read only once or when the external file
+  // changes
+  private static Map<String, TemplateContent> templateContents = new ConcurrentHashMap<>();
+  // the compiled schemas, compiled only once or when the schema file changes
+  private static Map<Path, CompiledSchema> schemas = new ConcurrentHashMap<>();
 
   private ConfigurationManager() {
   }
@@ -285,10 +295,11 @@ public class ConfigurationManager {
   private static void processIgnoreFilesInfo() {
     String ignorePatterns = getAppConfig(Constants.CONF_K_IGNORED_FILES);
     if (ignorePatterns != null && !ignorePatterns.trim().equalsIgnoreCase("")) {
-      String[] patterns = ignorePatterns.split(Constants.MISC_COMMA);
-      for (String pattern : patterns) {
-        IgnoredFilter.addIgnoreRule(pattern.trim());
+      List<String> patterns = new ArrayList<>();
+      for (String pattern : ignorePatterns.split(Constants.MISC_COMMA)) {
+        patterns.add(pattern.trim());
       }
+      IgnoredFilter.addIgnoreRules(patterns);
     }
   }
 
@@ -362,24 +373,76 @@ public class ConfigurationManager {
    */
   public static String getTemplateContent(String templateName) {
     String completeKey = Constants.CONF_K_PREFIX_METADATA + templateName + Constants.CONF_K_SUFFIX_TEMPLATE;
-    return getFile(completeKey);
+    Path externalFile = getExternalFile(completeKey);
+    long lastModified = -1;
+    if (externalFile != null) {
+      try {
+        lastModified = Files.getLastModifiedTime(externalFile).toMillis();
+      } catch (IOException e) {
+        LOGGER.debug("Unable to read the last modified time of '{}'", externalFile, e);
+      }
+    }
+    TemplateContent cached = templateContents.get(completeKey);
+    if (cached != null && cached.lastModified == lastModified) {
+      return cached.content;
+    }
+    String content = getFile(completeKey);
+    templateContents.put(completeKey, new TemplateContent(content, lastModified));
+    return content;
   }
 
   /**
+   * Gets the compiled schema associated to the template. The schema is only
+   * compiled again when the schema file changes.
+   *
    * @param templateType
    *          The name of the template
-   * @return The content of the schema file associated to the template
+   * @return The compiled schema associated to the template, or null if there
+   *         isn't one
+   * @throws SAXException
+   *           If the schema can't be compiled
    */
-  public static InputStream getSchemaFile(String templateType) {
+  public static Schema getSchema(String templateType) throws SAXException {
+    Path filePath = getExternalSchemaFile(templateType);
+    if (filePath == null) {
+      return null;
+    }
+    long lastModified;
+    try {
+      lastModified = Files.getLastModifiedTime(filePath).toMillis();
+    } catch (IOException e) {
+      LOGGER.error("Unable to get schema file '{}'", filePath, e);
+      return null;
+    }
+    CompiledSchema cached = schemas.get(filePath);
+    if (cached != null && cached.lastModified == lastModified) {
+      return cached.schema;
+    }
+    try (InputStream schemaStream = Files.newInputStream(filePath)) {
+      Schema schema = ControllerUtils.compileSchema(schemaStream);
+      schemas.put(filePath, new CompiledSchema(schema, lastModified));
+      return schema;
+    } catch (IOException e) {
+      LOGGER.error("Unable to get schema file '{}'", filePath, e);
+      return null;
+    }
+  }
+
+  /**
+   * @param templateType
+   *          The name of the template
+   * @return True if there's a schema file associated to the template
+   */
+  public static boolean hasSchema(String templateType) {
+    return getExternalSchemaFile(templateType) != null;
+  }
+
+  private static Path getExternalSchemaFile(String templateType) {
     String completeKey = Constants.CONF_K_PREFIX_METADATA + templateType + Constants.CONF_K_SUFFIX_SCHEMA;
     if (externalConfig.containsKey(completeKey)) {
       Path filePath = schemasPath.resolve(externalConfig.getString(completeKey));
       if (Files.exists(filePath)) {
-        try {
-          return Files.newInputStream(filePath);
-        } catch (IOException e) {
-          LOGGER.error("Unable to get schema file '{}'", filePath, e);
-        }
+        return filePath;
       }
     }
     return null;
@@ -406,13 +469,21 @@ public class ConfigurationManager {
       return null;
   }
 
+  private static Path getExternalFile(String completeKey) {
+    if (externalConfig.containsKey(completeKey)) {
+      Path filePath = templatesPath.resolve(externalConfig.getString(completeKey));
+      if (Files.exists(filePath)) {
+        return filePath;
+      }
+    }
+    return null;
+  }
+
   private static String getFile(String completeKey) {
     try {
-      if (externalConfig.containsKey(completeKey)) {
-        Path filePath = templatesPath.resolve(externalConfig.getString(completeKey));
-        if (Files.exists(filePath)) {
-          return ControllerUtils.readFile(filePath);
-        }
+      Path filePath = getExternalFile(completeKey);
+      if (filePath != null) {
+        return ControllerUtils.readFile(filePath);
       }
       String fileName = internalConfig.getString(completeKey);
       URL temp = ClassLoader.getSystemResource(Constants.FOLDER_TEMPLATES + Constants.MISC_FWD_SLASH + fileName);
@@ -488,6 +559,27 @@ public class ConfigurationManager {
     return getConfigAsBoolean(key, false);
   }
 
+  /**
+   * @param key
+   *          The name of the property (config)
+   * @param defaultValue
+   *          The value to return if the property doesn't exist or isn't a
+   *          number
+   * @return The value of the property (config)
+   */
+  public static int getConfigAsInt(String key, int defaultValue) {
+    String value = getConfig(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      LOGGER.debug("The value of the property '{}' isn't a number: {}", key, value);
+      return defaultValue;
+    }
+  }
+
   /**
    * @param key
    *          The name of the property (config)
@@ -739,4 +831,26 @@ public class ConfigurationManager {
       LOGGER.error("Error serializing to file {}", serialFile.toAbsolutePath().toString(), e);
     }
   }
+
+  private static class TemplateContent {
+    private final String content;
+    // the last modified time of the external file, or -1 if it's internal
+    private final long lastModified;
+
+    TemplateContent(String content, long lastModified) {
+      this.content = content;
+      this.lastModified = lastModified;
+    }
+  }
+
+  private static class CompiledSchema {
+    // schemas are immutable and can be used by several threads at once
+    private final Schema schema;
+    private final long lastModified;
+
+    CompiledSchema(Schema schema, long lastModified) {
+      this.schema = schema;
+      this.lastModified = lastModified;
+    }
+  }
 }
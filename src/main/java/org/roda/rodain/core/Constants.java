@@ -25,6 +25,7 @@ public final class Constants {
   public static final String RODAIN_CONFIG_FOLDER = "roda-in";
   public static final String RODAIN_SERIALIZE_FILE_PREFIX = "serial_";
   public static final String RODAIN_SERIALIZE_FILE_METS_HEADER_SUFFIX = "_metsheader.bin";
+  public static final String RODAIN_SCAN_CACHE_FILE = ".scancache.bin";
   public static final String RODAIN_GITHUB_LATEST_VERSION_LINK = "https://github.com/keeps/roda-in/releases";
   public static final String RODAIN_GITHUB_LATEST_VERSION_API_LINK = "https://api.github.com/repos/keeps/roda-in/releases/latest";
   public static final String RODAIN_GUI_TITLE = "RODA-In";
@@ -62,6 +63,9 @@ public final class Constants {
   public static final String SIP_REP_PREFIX = "rep";
   public static final String SIP_DEFAULT_AGENT_NAME = "RODA-in";
   public static final String SIP_AGENT_NAME_FORMAT = "RODA-in %s";
+  public static final String SIP_TEMP_DIR_PREFIX = "rodain-sip";
+  public static final String SIP_METRICS_LOG_FILE_FORMAT = "export_metrics - %s.csv";
+  public static final String SIP_METADATA_VALIDATION_FILE_FORMAT = "metadata_validation - %s.csv";
   public static final String SIP_NAME_STRATEGY_SERIAL_FORMAT_NUMBER = "%03d";
 
   // folders
@@ -105,6 +109,9 @@ public final class Constants {
   public static final String CONF_K_EXPORT_LAST_SIP_OUTPUT_FOLDER = "export.lastSipOutputFolder";
   public static final String CONF_K_ID_PREFIX = "idPrefix";
   public static final String CONF_K_SIP_CREATION_ALWAYS_JUMP_FOLDER = "sipPreviewCreator.createSip.alwaysJumpFolder";
+  public static final String CONF_K_WALK_FILE_TREE_PARALLELISM = "walkFileTree.parallelism";
+  public static final String CONF_K_SIP_CREATION_PARALLELISM = "sipCreator.parallelism";
+  public static final String CONF_K_SIP_CREATION_METRICS_LOG = "sipCreator.metricsLog";
   // METS Header fields
   public static final String CONF_K_METS_HEADER_FIELDS_PREFIX = "metsheader.";
   public static final String CONF_K_METS_HEADER_FIELDS_SUFFIX = ".fields";
@@ -356,6 +363,11 @@ public final class Constants {
   public static final String I18N_MAIN_UPDATE_LANG_HEADER = "Main.updateLang.header";
   public static final String I18N_MAIN_UPDATE_LANG_TITLE = "Main.updateLang.title";
   public static final String I18N_MAIN_USE_JAVA8 = "Main.useJava8";
+  public static final String I18N_MAIN_VALIDATE_METADATA = "Main.validateMetadata";
+  public static final String I18N_MAIN_VALIDATE_METADATA_INVALID = "Main.validateMetadata.invalid";
+  public static final String I18N_MAIN_VALIDATE_METADATA_INVALID_CONTENT = "Main.validateMetadata.invalidContent";
+  public static final String I18N_MAIN_VALIDATE_METADATA_SAVE_REPORT = "Main.validateMetadata.saveReport";
+  public static final String I18N_MAIN_VALIDATE_METADATA_VALID = "Main.validateMetadata.valid";
   public static final String I18N_MAIN_VIEW = "Main.view";
   public static final String I18N_METADATA_DIFF_FOLDER_DESCRIPTION = "metadata.diffFolder.description";
   public static final String I18N_METADATA_DIFF_FOLDER_TITLE = "metadata.diffFolder.title";
@@ -402,6 +414,7 @@ public final class Constants {
   public static final String I18N_SIMPLE_SIP_CREATOR_COPYING_METADATA = "SimpleSipCreator.copyingMetadata";
   public static final String I18N_SIMPLE_SIP_CREATOR_FINALIZING_SIP = "SimpleSipCreator.finalizingSip";
   public static final String I18N_SOURCE_TREE_CELL_REMOVE = "SourceTreeCell.remove";
+  public static final String I18N_SOURCE_TREE_CELL_MAPPED_COUNT = "SourceTreeCell.mappedCount";
   public static final String I18N_SOURCE_TREE_LOADING_TITLE = "SourceTreeLoading.title";
   public static final String I18N_SOURCE_TREE_LOAD_MORE_TITLE = "SourceTreeLoadMore.title";
   public static final String I18N_ADD = "add";
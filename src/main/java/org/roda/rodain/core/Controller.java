@@ -11,6 +11,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import javax.xml.validation.Schema;
+
 import org.apache.commons.configuration.ConfigurationException;
 import org.roda.rodain.core.schema.ClassificationSchema;
 import org.roda.rodain.core.schema.DescriptiveMetadata;
@@ -92,14 +94,13 @@ public class Controller {
     }
   }
 
-  public static boolean validateSchema(Path fileToValidate, InputStream schemaInputStream)
-    throws SAXException, IOException {
+  public static boolean validateSchema(Path fileToValidate, Schema schema) throws SAXException, IOException {
     String fileContent = ControllerUtils.readFile(fileToValidate);
-    return validateSchema(fileContent, schemaInputStream);
+    return validateSchema(fileContent, schema);
   }
 
-  public static boolean validateSchema(String content, InputStream schemaInputStream) throws SAXException {
-    return ControllerUtils.validateSchema(content, schemaInputStream);
+  public static boolean validateSchema(String content, Schema schema) throws SAXException {
+    return ControllerUtils.validateSchema(content, schema);
   }
 
   public static String loadMetadataFile(Path path) throws IOException {
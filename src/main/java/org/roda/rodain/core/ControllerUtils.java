@@ -21,7 +21,6 @@ import java.util.UUID;
 
 import javax.xml.XMLConstants;
 import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -104,16 +103,22 @@ public final class ControllerUtils {
    * 
    * @param content
    *          The String content of the XML to be validated.
-   * @param schemaString
-   *          The String content of the schema used to validate.
+   * @param schema
+   *          The compiled schema used to validate.
    * @return True if the content can be validated using the schema, false
    *         otherwise.
    * @throws SAXException
    */
-  protected static boolean validateSchema(String content, InputStream schemaInputStream) throws SAXException {
+  protected static boolean validateSchema(String content, Schema schema) throws SAXException {
+    if (schema == null) {
+      return false;
+    }
     boolean isValid = false;
     try {
-      isValid = validateSchemaWithoutCatch(content, schemaInputStream);
+      // validators aren't thread-safe, so each validation uses a new one
+      Validator validator = schema.newValidator();
+      validator.validate(new StreamSource(new StringReader(content)));
+      isValid = true;
     } catch (IOException e) {
       LOGGER.error("Can't access the schema file", e);
     }
@@ -121,21 +126,19 @@ public final class ControllerUtils {
     return isValid;
   }
 
-  private static boolean validateSchemaWithoutCatch(String content, InputStream schemaStream)
-    throws IOException, SAXException {
-    // build the schema
+  /**
+   * Compiles a schema, resolving the schemas it imports in the RODA-in home.
+   * 
+   * @param schemaStream
+   *          The content of the schema.
+   * @return The compiled schema, which can be shared by several threads.
+   * @throws SAXException
+   *           If the schema can't be compiled.
+   */
+  protected static Schema compileSchema(InputStream schemaStream) throws SAXException {
     SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
     factory.setResourceResolver(new ResourceResolver());
-    StreamSource streamSource = new StreamSource(schemaStream);
-    Schema schema = factory.newSchema(streamSource);
-    Validator validator = schema.newValidator();
-
-    // create a source from a string
-    Source source = new StreamSource(new StringReader(content));
-
-    // check input
-    validator.validate(source);
-    return true;
+    return factory.newSchema(new StreamSource(schemaStream));
   }
 
   /**
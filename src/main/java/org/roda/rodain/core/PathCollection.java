@@ -1,17 +1,19 @@
 package org.roda.rodain.core;
 
-import java.io.File;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.StringUtils;
 import org.roda.rodain.core.Constants.PathState;
+import org.roda.rodain.core.source.FileScanCache;
 import org.roda.rodain.ui.source.items.SourceTreeDirectory;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
 import org.slf4j.Logger;
@@ -26,14 +28,32 @@ import org.slf4j.LoggerFactory;
  * state of a path can be changed and, with this class, this information is
  * always coherent, since all of them report the changes to it.
  * </p>
+ * <p>
+ * The paths are kept in a tree indexed by path segment, where each directory
+ * node keeps the count of its direct children in each state. This way, adding
+ * a path or verifying the state of a directory costs time proportional to the
+ * depth of the path (and to the size of the affected sub-tree, when a state
+ * has to be applied to all the children), not to the number of paths in the
+ * collection.
+ * </p>
+ * <p>
+ * Every node also keeps the count of all its descendants in each state, updated
+ * in every state transition, so that the number of mapped, ignored and normal
+ * paths under a directory can be known without walking it.
+ * </p>
+ * <p>
+ * The changes to the collection are serialized by the class lock, but the
+ * reads don't take it, so that the UI thread isn't blocked while a large
+ * group of paths is being changed. The file system is never accessed while
+ * holding the lock.
+ * </p>
  *
  * @author Andre Pereira apereira@keep.pt
  * @since 12-11-2015.
  */
 public class PathCollection {
   private static final Logger LOGGER = LoggerFactory.getLogger(PathCollection.class.getName());
-  private static Map<Path, PathState> states = new ConcurrentHashMap<>();
-  private static Map<Path, SourceTreeItem> items = new HashMap<>();
+  private static volatile Node root = new Node(null, null);
 
   private PathCollection() {
   }
@@ -44,9 +64,12 @@ public class PathCollection {
    * @param path
    *          The path to be added to the collection
    */
-  public static void simpleAddPath(Path path) {
-    if (!"".equals(path.toString()) && !states.containsKey(path)) {
-      states.put(path, PathState.NORMAL);
+  public static synchronized void simpleAddPath(Path path) {
+    if (!"".equals(path.toString())) {
+      Node node = getNode(path, true);
+      if (node.state == null) {
+        setNodeState(node, PathState.NORMAL);
+      }
     }
   }
 
@@ -69,64 +92,65 @@ public class PathCollection {
    * @param st
    *          The state of the item.
    */
-  public static void addPath(Path path, PathState st) {
-    if ("".equals(path)) {
+  public static synchronized void addPath(Path path, PathState st) {
+    if ("".equals(path.toString())) {
       return;
     }
+    Node node = getNode(path, true);
     // ignoring or removing the ignore of an item
     if (st == PathState.IGNORED) {
-      applySameStateAllChildren(path, PathState.NORMAL, st);
+      applySameStateAllChildren(node, PathState.NORMAL, st);
     }
     if (st == PathState.MAPPED) {
-      applySameStateAllChildren(path, PathState.NORMAL, st);
+      applySameStateAllChildren(node, PathState.NORMAL, st);
     }
-    if (st == PathState.NORMAL && states.get(path) == PathState.IGNORED) {
-      applySameStateAllChildren(path, PathState.IGNORED, st);
-      verifyStateAncestors(path);
+    if (st == PathState.NORMAL && node.state == PathState.IGNORED) {
+      applySameStateAllChildren(node, PathState.IGNORED, st);
+      verifyStateAncestors(node);
     }
 
-    if (states.get(path) != PathState.NORMAL) {
-      states.put(path, st);
-      verifyStateAncestors(path);
+    if (node.state != PathState.NORMAL) {
+      setNodeState(node, st);
+      verifyStateAncestors(node);
     } else {
-      verifyState(path);
+      verifyState(node);
     }
-    states.put(path, st);
+    setNodeState(node, st);
 
     // if there's an item with this path
-    if (items.containsKey(path)) {
-      SourceTreeItem item = items.get(path);
-      item.setState(states.get(path));
-      verifyStateAncestors(path);
+    if (node.item != null) {
+      SourceTreeItem item = node.item;
+      item.setState(node.state);
+      verifyStateAncestors(node);
       if (item instanceof SourceTreeDirectory) {
         ((SourceTreeDirectory) item).moveChildrenWrongState();
       }
     }
 
-    Path parent = path.getParent();
+    Node parent = node.parent;
     // move the modified children in the parent
-    if (parent != null && items.containsKey(parent) && items.get(parent) instanceof SourceTreeDirectory) {
-      ((SourceTreeDirectory) items.get(parent)).moveChildrenWrongState();
+    if (parent != null && parent.item instanceof SourceTreeDirectory) {
+      ((SourceTreeDirectory) parent.item).moveChildrenWrongState();
     }
   }
 
-  private static void applySameStateAllChildren(Path path, PathState previousState, PathState state) {
-    if ("".equals(path)) {
-      return;
-    }
-    states.put(path, state);
+  private static void applySameStateAllChildren(Node node, PathState previousState, PathState state) {
+    setNodeState(node, state);
 
-    if (Files.isDirectory(path)) {
-      Map<Path, PathState> children = getAllChildren(path);
-      for (Path child : children.keySet()) {
-        if (states.get(child) == previousState) {
-          states.put(child, state);
-          // update the item
-          if (items.containsKey(child)) {
-            items.get(child).setState(state);
-          }
+    // only directories have children in the collection, so there's no need to
+    // ask the file system what this path is
+    Deque<Node> toVisit = new ArrayDeque<>();
+    node.pushChildren(toVisit);
+    while (!toVisit.isEmpty()) {
+      Node child = toVisit.pop();
+      if (child.state == previousState) {
+        setNodeState(child, state);
+        // update the item
+        if (child.item != null) {
+          child.item.setState(state);
         }
       }
+      child.pushChildren(toVisit);
     }
   }
 
@@ -137,32 +161,98 @@ public class PathCollection {
    *          The set of paths to be added to the collection.
    * @param st
    *          The state of the items.
-   * @see #addPath(String, PathState)
+   * @see #addPaths(Map)
    */
-  public static void addPaths(Set<String> paths, PathState st) {
+  public static synchronized void addPaths(Set<String> paths, PathState st) {
+    Map<Path, PathState> pathStates = new LinkedHashMap<>();
     for (String path : paths)
-      addPath(Paths.get(path), st);
+      pathStates.put(Paths.get(path), st);
+    addPaths(pathStates);
+  }
+
+  /**
+   * Adds a group of paths and their states to the collection in a single
+   * transaction.
+   * <p/>
+   * <p>
+   * The result is the same as calling {@link #addPath(Path, PathState)} for
+   * each path, but the state of each ancestor directory is verified only once,
+   * after all the paths have their new state, and each affected directory item
+   * moves its children with the wrong state only once.
+   * </p>
+   *
+   * @param pathStates
+   *          The paths to be added to the collection and their new state.
+   * @see #addPath(Path, PathState)
+   */
+  public static synchronized void addPaths(Map<Path, PathState> pathStates) {
+    // directories to verify, from the deepest to the shallowest
+    TreeMap<Integer, Set<Node>> toVerify = new TreeMap<>();
+    Set<SourceTreeDirectory> toRefresh = new LinkedHashSet<>();
+
+    for (Map.Entry<Path, PathState> entry : pathStates.entrySet()) {
+      Path path = entry.getKey();
+      PathState st = entry.getValue();
+      if ("".equals(path.toString())) {
+        continue;
+      }
+      Node node = getNode(path, true);
+      if (st == PathState.IGNORED || st == PathState.MAPPED) {
+        applySameStateAllChildren(node, PathState.NORMAL, st);
+      }
+      if (st == PathState.NORMAL && node.state == PathState.IGNORED) {
+        applySameStateAllChildren(node, PathState.IGNORED, st);
+      }
+      setNodeState(node, st);
+
+      if (node.item != null) {
+        node.item.setState(node.state);
+        if (node.item instanceof SourceTreeDirectory) {
+          toRefresh.add((SourceTreeDirectory) node.item);
+        }
+      }
+      if (node.parent != null && node.parent != root) {
+        toVerify.computeIfAbsent(path.getNameCount() - 1, k -> new HashSet<>()).add(node.parent);
+      }
+    }
+
+    while (!toVerify.isEmpty()) {
+      Map.Entry<Integer, Set<Node>> deepest = toVerify.pollLastEntry();
+      for (Node node : deepest.getValue()) {
+        boolean updated = true;
+        if (node.state != null) {
+          updated = verifyState(node);
+        }
+        if (node.item instanceof SourceTreeDirectory) {
+          toRefresh.add((SourceTreeDirectory) node.item);
+        }
+        if (updated && node.parent != null && node.parent != root) {
+          toVerify.computeIfAbsent(deepest.getKey() - 1, k -> new HashSet<>()).add(node.parent);
+        }
+      }
+    }
+
+    toRefresh.forEach(SourceTreeDirectory::moveChildrenWrongState);
   }
 
   /**
    * Adds a SourceTreeItem reference to the collection.
    * <p/>
    * <p>
-   * If the item's path isn't in the collection, it's also added.
+   * The item's path is added to the collection with the item's state.
    * </p>
    *
    * @param item
    *          The item to be added to the collection.
    */
-  public static void addItem(SourceTreeItem item) {
+  public static synchronized void addItem(SourceTreeItem item) {
     String path = item.getPath();
     if ("".equals(path)) {
       return;
     }
-    if (!states.containsKey(path)) {
-      states.put(Paths.get(path), item.getState());
-    }
-    items.put(Paths.get(path), item);
+    Node node = getNode(Paths.get(path), true);
+    setNodeState(node, item.getState());
+    node.item = item;
   }
 
   /**
@@ -175,14 +265,24 @@ public class PathCollection {
    */
   public static PathState getState(Path path) {
     PathState result = PathState.NORMAL;
-    if (states.containsKey(path)) {
-      result = states.get(path);
+    Node node = getNode(path, false);
+    if (node != null && node.state != null) {
+      result = node.state;
     } else {
       Path parent = path.getParent();
       if (parent != null) {
-        if (Files.isDirectory(parent)) {
+        // the file system is accessed before taking the lock
+        if (FileScanCache.isDirectory(parent)) {
           result = getStateWithoutAddingParents(parent);
-          addPath(path, result);
+          synchronized (PathCollection.class) {
+            node = getNode(path, false);
+            if (node != null && node.state != null) {
+              // added by another thread in the meantime
+              result = node.state;
+            } else {
+              addPath(path, result);
+            }
+          }
         }
       }
     }
@@ -191,12 +291,13 @@ public class PathCollection {
 
   private static PathState getStateWithoutAddingParents(Path path) {
     PathState result = PathState.NORMAL;
-    if (states.containsKey(path)) {
-      result = states.get(path);
+    Node node = getNode(path, false);
+    if (node != null && node.state != null) {
+      result = node.state;
     } else {
       Path parent = path.getParent();
       if (parent != null) {
-        if (Files.isDirectory(parent)) {
+        if (FileScanCache.isDirectory(parent)) {
           result = getState(parent);
         }
       }
@@ -213,26 +314,80 @@ public class PathCollection {
    *         otherwise.
    */
   public static SourceTreeItem getItem(Path path) {
-    return items.get(path);
+    Node node = getNode(path, false);
+    return node != null ? node.item : null;
   }
 
-  public static void removePathAndItem(Path path) {
-    states.remove(path);
-    items.remove(path);
+  /**
+   * Used to get the count of the direct children of a path in each state.
+   *
+   * @param path
+   *          The path of the directory.
+   * @return The count of the children of the path in each state. All the
+   *         counts are zero if the path isn't in the collection.
+   */
+  public static StateCount getChildrenStateCount(Path path) {
+    Node node = getNode(path, false);
+    if (node == null) {
+      return new StateCount(0, 0, 0);
+    }
+    return new StateCount(node.normalChildren, node.ignoredChildren, node.mappedChildren);
+  }
 
-    Map<Path, PathState> children = getAllChildren(path);
-    children.keySet().forEach(PathCollection::removePathAndItem);
+  /**
+   * Used to get the count of all the descendants of a path in each state.
+   * <p/>
+   * <p>
+   * Doesn't wait for the changes being made to the collection, so that it can
+   * be used while rendering the items. The counts are the ones of the last
+   * change.
+   * </p>
+   *
+   * @param path
+   *          The path of the directory.
+   * @return The count of the descendants of the path in each state. All the
+   *         counts are zero if the path isn't in the collection.
+   */
+  public static StateCount getDescendantsStateCount(Path path) {
+    Node node = getNode(path, false);
+    if (node == null) {
+      return new StateCount(0, 0, 0);
+    }
+    return new StateCount(node.normalDescendants, node.ignoredDescendants, node.mappedDescendants);
   }
 
-  private static void verifyStateAncestors(Path path) {
-    while (path.getParent() != null) {
-      path = path.getParent();
+  /**
+   * Removes the path, all its children and the associated items from the
+   * collection.
+   *
+   * @param path
+   *          The path to be removed.
+   */
+  public static synchronized void removePathAndItem(Path path) {
+    Node node = getNode(path, false);
+    if (node == null || node.parent == null) {
+      return;
+    }
+    for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+      ancestor.normalDescendants -= node.normalDescendants;
+      ancestor.ignoredDescendants -= node.ignoredDescendants;
+      ancestor.mappedDescendants -= node.mappedDescendants;
+    }
+    setNodeState(node, null);
+    node.item = null;
+    node.parent.removeChild(node);
+    prune(node.parent);
+  }
+
+  private static void verifyStateAncestors(Node node) {
+    while (node.parent != null && node.parent != root) {
+      node = node.parent;
       boolean updated = true;
-      if (states.containsKey(path)) {
-        updated = verifyState(path);
+      if (node.state != null) {
+        updated = verifyState(node);
 
-        if (items.containsKey(path)) {
-          SourceTreeDirectory dir = (SourceTreeDirectory) items.get(path);
+        if (node.item != null) {
+          SourceTreeDirectory dir = (SourceTreeDirectory) node.item;
           dir.moveChildrenWrongState();
         }
       }
@@ -245,57 +400,35 @@ public class PathCollection {
   /*
    * Returns true if the state was updated, false if the state was the same.
    */
-  private static boolean verifyState(Path path) {
-    if ("".equals(path)) {
-      return false;
-    }
-
-    PathState currentState = null;
+  private static boolean verifyState(Node node) {
+    PathState currentState = node.state;
     PathState newState = null;
-    if (states.containsKey(path)) {
-      currentState = states.get(path);
-    }
-    int normalItems = 0, ignoredItems = 0, mappedItems = 0;
-    Map<Path, PathState> children = getDirectChildren(path);
-    for (Path child : children.keySet()) {
-      switch (states.get(child)) {
-        case MAPPED:
-          mappedItems++;
-          break;
-        case IGNORED:
-          ignoredItems++;
-          break;
-        default:
-          normalItems++;
-          break;
-      }
-    }
+    int normalItems = node.normalChildren, ignoredItems = node.ignoredChildren, mappedItems = node.mappedChildren;
 
     if (normalItems == 0) {
       // only MAPPED items, the directory is MAPPED
       if (mappedItems != 0 && ignoredItems == 0) {
         newState = PathState.MAPPED;
-        states.put(path, PathState.MAPPED);
       }
       // only IGNORED items, the directory is IGNORED
       if (mappedItems == 0 && ignoredItems != 0) {
         newState = PathState.IGNORED;
-        states.put(path, PathState.IGNORED);
       }
       // IGNORED and MAPPED items, the directory is MAPPED
       if (mappedItems != 0 && ignoredItems != 0) {
         newState = PathState.MAPPED;
-        states.put(path, PathState.MAPPED);
       }
     } else { // there's at least one NORMAL item, so the directory must be
       // NORMAL
       newState = PathState.NORMAL;
-      states.put(path, PathState.NORMAL);
     }
 
-    if (items.containsKey(path)) {
-      SourceTreeItem item = items.get(path);
-      item.setState(states.get(path));
+    if (newState != null) {
+      setNodeState(node, newState);
+    }
+
+    if (node.item != null) {
+      node.item.setState(node.state);
     }
 
     if (currentState != null && newState != null) {
@@ -304,21 +437,189 @@ public class PathCollection {
     return true;
   }
 
-  private static Map<Path, PathState> getDirectChildren(Path path) {
-    int countSeparators = StringUtils.countMatches(path.toString(), File.separator) + 1;
-    return states.entrySet().stream().parallel()
-      .filter(p -> p.getKey().startsWith(path)
-        && StringUtils.countMatches(p.getKey().toString(), File.separator) == countSeparators)
-      .collect(Collectors.toMap(p -> p.getKey(), p -> p.getValue()));
+  /*
+   * Sets the state of a node, keeping the children counters of its parent and
+   * the descendants counters of all its ancestors coherent. A null state means
+   * that the path is no longer in the collection.
+   */
+  private static void setNodeState(Node node, PathState state) {
+    PathState previous = node.state;
+    if (previous == state) {
+      return;
+    }
+    node.state = state;
+    Node parent = node.parent;
+    if (parent != null) {
+      parent.countChild(previous, -1);
+      parent.countChild(state, 1);
+    }
+    for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+      ancestor.countDescendant(previous, -1);
+      ancestor.countDescendant(state, 1);
+    }
+  }
+
+  /*
+   * Removes the nodes that are no longer needed to reach a path in the
+   * collection.
+   */
+  private static void prune(Node node) {
+    while (node != root && node.isEmpty()) {
+      Node parent = node.parent;
+      parent.removeChild(node);
+      node = parent;
+    }
+  }
+
+  private static Node getNode(Path path, boolean create) {
+    Node node = root;
+    Path pathRoot = path.getRoot();
+    node = node.getChild(pathRoot == null ? "" : pathRoot.toString(), create);
+    for (int i = 0; node != null && i < path.getNameCount(); i++) {
+      String name = path.getName(i).toString();
+      if (!"".equals(name)) {
+        node = node.getChild(name, create);
+      }
+    }
+    return node;
   }
 
-  private static Map<Path, PathState> getAllChildren(Path path) {
-    return states.entrySet().stream().parallel().filter(p -> p.getKey().startsWith(path))
-      .collect(Collectors.toMap(p -> p.getKey(), p -> p.getValue()));
+  public static synchronized void reset() {
+    root = new Node(null, null);
   }
 
-  public static void reset() {
-    states = new HashMap<>();
-    items = new HashMap<>();
+  /**
+   * A path segment of the collection. The node is only part of the collection
+   * when it has a state, otherwise it only exists so that its descendants can
+   * be reached. The fields are changed with the class lock and read without
+   * it.
+   */
+  private static class Node {
+    private final String name;
+    private final Node parent;
+    private volatile Map<String, Node> children;
+    private volatile PathState state;
+    private volatile SourceTreeItem item;
+    private volatile int normalChildren = 0, ignoredChildren = 0, mappedChildren = 0;
+    private volatile int normalDescendants = 0, ignoredDescendants = 0, mappedDescendants = 0;
+
+    Node(String name, Node parent) {
+      this.name = name;
+      this.parent = parent;
+    }
+
+    Node getChild(String childName, boolean create) {
+      Map<String, Node> current = children;
+      Node child = current != null ? current.get(childName) : null;
+      if (child == null && create) {
+        if (current == null) {
+          current = new ConcurrentHashMap<>(4);
+          children = current;
+        }
+        child = new Node(childName, this);
+        current.put(childName, child);
+      }
+      return child;
+    }
+
+    void removeChild(Node child) {
+      Map<String, Node> current = children;
+      if (current != null) {
+        current.remove(child.name);
+        if (current.isEmpty()) {
+          children = null;
+        }
+      }
+    }
+
+    void pushChildren(Deque<Node> deque) {
+      Map<String, Node> current = children;
+      if (current != null) {
+        for (Node child : current.values()) {
+          deque.push(child);
+        }
+      }
+    }
+
+    void countChild(PathState childState, int delta) {
+      if (childState == null) {
+        return;
+      }
+      switch (childState) {
+        case MAPPED:
+          mappedChildren += delta;
+          break;
+        case IGNORED:
+          ignoredChildren += delta;
+          break;
+        default:
+          normalChildren += delta;
+          break;
+      }
+    }
+
+    void countDescendant(PathState descendantState, int delta) {
+      if (descendantState == null) {
+        return;
+      }
+      switch (descendantState) {
+        case MAPPED:
+          mappedDescendants += delta;
+          break;
+        case IGNORED:
+          ignoredDescendants += delta;
+          break;
+        default:
+          normalDescendants += delta;
+          break;
+      }
+    }
+
+    boolean isEmpty() {
+      return state == null && item == null && children == null;
+    }
+  }
+
+  /**
+   * The count of paths in each state.
+   */
+  public static class StateCount {
+    private final int normal;
+    private final int ignored;
+    private final int mapped;
+
+    public StateCount(int normal, int ignored, int mapped) {
+      this.normal = normal;
+      this.ignored = ignored;
+      this.mapped = mapped;
+    }
+
+    /**
+     * @return The count of NORMAL paths.
+     */
+    public int getNormal() {
+      return normal;
+    }
+
+    /**
+     * @return The count of IGNORED paths.
+     */
+    public int getIgnored() {
+      return ignored;
+    }
+
+    /**
+     * @return The count of MAPPED paths.
+     */
+    public int getMapped() {
+      return mapped;
+    }
+
+    /**
+     * @return The count of paths, whatever their state.
+     */
+    public int getTotal() {
+      return normal + ignored + mapped;
+    }
   }
-}
\ No newline at end of file
+}
@@ -1,8 +1,6 @@
 package org.roda.rodain.core.creation;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -14,6 +12,7 @@ import org.roda.rodain.core.Constants;
 import org.roda.rodain.core.Controller;
 import org.roda.rodain.core.I18n;
 import org.roda.rodain.core.Pair;
+import org.roda.rodain.core.creation.ExportMetrics.Phase;
 import org.roda.rodain.core.rules.TreeNode;
 import org.roda.rodain.core.schema.Sip;
 import org.roda.rodain.core.sip.SipPreview;
@@ -38,12 +37,7 @@ import org.slf4j.LoggerFactory;
  */
 public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
   private static final Logger LOGGER = LoggerFactory.getLogger(BagitSipCreator.class.getName());
-  private int countFilesOfZip;
-  private int currentSIPsize = 0;
-  private int currentSIPadded = 0;
-  private int repProcessingSize;
 
-  private SIPNameBuilder sipNameBuilder;
 
   /**
    * Creates a new BagIt exporter.
@@ -56,39 +50,17 @@ public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
    */
   public BagitSipCreator(Path outputPath, Map<Sip, List<String>> previews, SIPNameBuilder sipNameBuilder,
     boolean createReport) {
-    super(outputPath, previews, createReport);
-    this.sipNameBuilder = sipNameBuilder;
+    super(outputPath, previews, sipNameBuilder, createReport);
   }
 
   /**
-   * Attempts to create a BagIt SIP of each SipPreview
+   * Attempts to create a BagIt SIP of the SipPreview
    */
   @Override
-  public void run() {
-    Map<Path, Object> sips = new HashMap<>();
-    for (Sip preview : previews.keySet()) {
-      if (canceled) {
-        break;
-      }
-      Pair pathBag = createBagit(preview);
-      if (pathBag != null) {
-        sips.put((Path) pathBag.getKey(), (SIP) pathBag.getValue());
-      }
-    }
-
-    if (createReport) {
-      createReport(sips);
-    }
-
-    currentAction = I18n.t(Constants.I18N_DONE);
-  }
-
-  private Pair createBagit(Sip descriptionObject) {
-    Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+  protected Pair createSip(Sip descriptionObject) {
     // we add a timestamp to the beginning of the SIP name to avoid same name
     // conflicts
-    currentSipName = descriptionObject.getTitle();
-    currentAction = actionCreatingFolders;
+    setCurrentAction(actionCreatingFolders);
 
     IPContentType contentType = descriptionObject instanceof SipPreview
       ? ((SipPreview) descriptionObject).getContentType() : IPContentType.getMIXED();
@@ -99,7 +71,7 @@ public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
     bagit.setStatus(IPStatus.NEW);
 
     try {
-      currentAction = actionCopyingData;
+      startPhase(Phase.DATA, actionCopyingData);
       if (descriptionObject instanceof SipPreview) {
         SipPreview sip = (SipPreview) descriptionObject;
         for (SipRepresentation sr : sip.getRepresentations()) {
@@ -107,12 +79,12 @@ public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
           rep.setContentType(sr.getType());
 
           Set<TreeNode> files = sr.getFiles();
-          currentSIPadded = 0;
-          currentSIPsize = 0;
+          getCurrentSip().filesAdded = 0;
+          getCurrentSip().filesCount = 0;
 
           // count files
           for (TreeNode tn : files) {
-            currentSIPsize += tn.getFullTreePaths().size();
+            getCurrentSip().filesCount += tn.getFullTreePathsCount();
           }
 
           for (TreeNode tn : files) {
@@ -123,22 +95,24 @@ public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
         }
       }
 
+      startPhase(Phase.METADATA, actionCopyingMetadata);
       bagit.setAncestors(Arrays.asList(descriptionObject.getParentId()));
       Map<String, String> metadataMap = new HashMap<>();
       metadataMap.put(IPConstants.BAGIT_ID, descriptionObject.getId());
       metadataMap.put(IPConstants.BAGIT_TITLE, descriptionObject.getTitle());
       metadataMap.put(IPConstants.BAGIT_LEVEL, IPConstants.BAGIT_ITEM_LEVEL);
 
-      Map<String, String> list = descriptionObject.getMetadataWithReplaces();
+      Map<String, String> list = descriptionObject.getMetadataToExport(exportDate);
       if (!list.isEmpty()) {
         list.forEach((id, content) -> metadataMap.put(Constants.CONF_K_PREFIX_METADATA + id, content));
       }
 
-      Path metadataPath = tempDir.resolve(Utils.generateRandomAndPrefixedUUID());
+      Path metadataPath = getTempDirectory().resolve(Utils.generateRandomAndPrefixedUUID());
       bagit.addDescriptiveMetadata(BagitUtils.createBagitMetadata(metadataMap, bagit.getAncestors(), metadataPath));
 
-      Path name = bagit.build(outputPath, createSipName(descriptionObject, sipNameBuilder));
-      createdSipsCount++;
+      startBuild(bagit);
+      Path name = bagit.build(outputPath, getSipName(descriptionObject));
+      createdSipsCount.incrementAndGet();
       return new Pair(name, bagit);
     } catch (Exception e) {
       LOGGER.error("Error creating SIP", e);
@@ -149,7 +123,7 @@ public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
   }
 
   private void addFileToRepresentation(TreeNode tn, List<String> relativePath, IPRepresentation rep) {
-    if (Files.isDirectory(tn.getPath())) {
+    if (tn.isDirectory()) {
       // add this directory to the path list
       List<String> newRelativePath = new ArrayList<>(relativePath);
       newRelativePath.add(tn.getPath().getFileName().toString());
@@ -160,25 +134,26 @@ public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
     } else {
       // if it's a file, add it to the representation
       rep.addFile(tn.getPath(), relativePath);
-      currentSIPadded++;
-      currentAction = String.format("%s (%d/%d)", actionCopyingData, currentSIPadded, currentSIPsize);
+      fileAdded(tn.getPath());
+      SipProgress progress = getCurrentSip();
+      progress.action = String.format("%s (%d/%d)", actionCopyingData, progress.filesAdded, progress.filesCount);
     }
   }
 
   @Override
   public void sipBuildRepresentationsProcessingStarted(int current) {
-    // do nothing
+    startPhase(Phase.REPRESENTATIONS);
   }
 
   @Override
   public void sipBuildRepresentationProcessingStarted(int size) {
-    repProcessingSize = size;
+    getCurrentSip().repProcessingSize = size;
   }
 
   @Override
   public void sipBuildRepresentationProcessingCurrentStatus(int i) {
     String format = I18n.t(Constants.I18N_CREATIONMODALPROCESSING_REPRESENTATION) + " (%d/%d)";
-    currentAction = String.format(format, i, repProcessingSize);
+    setCurrentAction(String.format(format, i, getCurrentSip().repProcessingSize));
   }
 
   @Override
@@ -193,21 +168,16 @@ public class BagitSipCreator extends SimpleSipCreator implements SIPObserver {
 
   @Override
   public void sipBuildPackagingStarted(int current) {
-    countFilesOfZip = current;
+    packagingStarted(current);
   }
 
   @Override
   public void sipBuildPackagingCurrentStatus(int current) {
-    String format = I18n.t(Constants.I18N_CREATIONMODALPROCESSING_EARK_PROGRESS);
-    String progress = String.format(format, current, countFilesOfZip);
-    currentAction = progress;
-    currentSipProgress = ((float) current) / countFilesOfZip;
-    currentSipProgress /= sipPreviewCount;
+    packagingStatus(current);
   }
 
   @Override
   public void sipBuildPackagingEnded() {
-    currentAction = actionFinalizingSip;
-    currentSipProgress = 0;
+    packagingEnded();
   }
 }
@@ -98,11 +98,26 @@ public class CreateSips {
   }
 
   /**
-   * @return A double resulting of the division of the number of SIPs already
-   *         created by the total number of SIPs.
+   * @return The progress of the exportation, from 0 to 1, weighted by the size
+   *         of the SIPs.
    */
   public double getProgress() {
-    return (creator.getCreatedSipsCount() / (sipsCount * 1.0)) + creator.currentSipProgress;
+    return creator.getProgress();
+  }
+
+  /**
+   * @return The number of SIPs waiting to be created.
+   */
+  public int getQueuedSipsCount() {
+    return creator.getQueuedSipsCount();
+  }
+
+  /**
+   * @return The metrics of the exportation, with the time spent in each phase
+   *         and the throughput.
+   */
+  public ExportMetrics getMetrics() {
+    return creator.getMetrics();
   }
 
   /**
@@ -1,22 +1,19 @@
 package org.roda.rodain.core.creation;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.io.FileUtils;
 import org.roda.rodain.core.ConfigurationManager;
 import org.roda.rodain.core.Constants;
 import org.roda.rodain.core.Constants.MetadataOption;
 import org.roda.rodain.core.Controller;
 import org.roda.rodain.core.I18n;
 import org.roda.rodain.core.Pair;
+import org.roda.rodain.core.creation.ExportMetrics.Phase;
 import org.roda.rodain.core.rules.TreeNode;
 import org.roda.rodain.core.schema.DescriptiveMetadata;
 import org.roda.rodain.core.schema.Sip;
@@ -43,12 +40,7 @@ import org.slf4j.LoggerFactory;
  */
 public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
   private static final Logger LOGGER = LoggerFactory.getLogger(EarkSipCreator.class.getName());
-  private int countFilesOfZip;
-  private int currentSIPadded = 0;
-  private int currentSIPsize = 0;
-  private int repProcessingSize;
 
-  private SIPNameBuilder sipNameBuilder;
   private final IPHeader ipHeader;
 
   /**
@@ -63,34 +55,15 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
    */
   public EarkSipCreator(Path outputPath, Map<Sip, List<String>> previews, SIPNameBuilder sipNameBuilder,
     boolean createReport, IPHeader ipHeader) {
-    super(outputPath, previews, createReport);
-    this.sipNameBuilder = sipNameBuilder;
+    super(outputPath, previews, sipNameBuilder, createReport);
     this.ipHeader = ipHeader;
   }
 
   /**
-   * Attempts to create an EARK SIP of each SipPreview
+   * Attempts to create an EARK SIP of the SipPreview
    */
   @Override
-  public void run() {
-    Map<Path, Object> sips = new HashMap<>();
-    for (Sip preview : previews.keySet()) {
-      if (canceled) {
-        break;
-      }
-      Pair pathSIP = createEarkSip(preview);
-      if (pathSIP != null) {
-        sips.put((Path) pathSIP.getKey(), (SIP) pathSIP.getValue());
-      }
-    }
-    if (createReport) {
-      createReport(sips);
-    }
-    currentAction = I18n.t(Constants.I18N_DONE);
-  }
-
-  private Pair createEarkSip(Sip descriptionObject) {
-    Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+  protected Pair createSip(Sip descriptionObject) {
     try {
       IPContentType contentType = descriptionObject instanceof SipPreview
         ? ((SipPreview) descriptionObject).getContentType() : IPContentType.getMIXED();
@@ -103,9 +76,7 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
         earkSip.setStatus(IPStatus.NEW);
       }
 
-      currentSipProgress = 0;
-      currentSipName = descriptionObject.getTitle();
-      currentAction = actionCopyingMetadata;
+      startPhase(Phase.METADATA, actionCopyingMetadata);
 
       for (DescriptiveMetadata descObjMetadata : descriptionObject.getMetadata()) {
         MetadataType metadataType = new MetadataType(MetadataType.MetadataTypeEnum.OTHER);
@@ -135,9 +106,8 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
         }
 
         if (metadataPath == null) {
-          String content = descriptionObject.getMetadataWithReplaces(descObjMetadata);
-          metadataPath = tempDir.resolve(descObjMetadata.getId());
-          FileUtils.writeStringToFile(metadataPath.toFile(), content, Constants.RODAIN_DEFAULT_ENCODING);
+          String content = descriptionObject.getMetadataToExport(descObjMetadata, exportDate);
+          metadataPath = writeTempFile(descObjMetadata.getId(), content);
         }
 
         IPFile metadataFile = new IPFile(metadataPath);
@@ -147,7 +117,7 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
         earkSip.addDescriptiveMetadata(metadata);
       }
 
-      currentAction = actionCopyingData;
+      startPhase(Phase.DATA, actionCopyingData);
       if (descriptionObject instanceof SipPreview) {
         SipPreview sip = (SipPreview) descriptionObject;
         for (SipRepresentation sr : sip.getRepresentations()) {
@@ -155,12 +125,12 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
           rep.setContentType(sr.getType());
 
           Set<TreeNode> files = sr.getFiles();
-          currentSIPadded = 0;
-          currentSIPsize = 0;
+          getCurrentSip().filesAdded = 0;
+          getCurrentSip().filesCount = 0;
 
           // count files
           for (TreeNode tn : files) {
-            currentSIPsize += tn.getFullTreePaths().size();
+            getCurrentSip().filesCount += tn.getFullTreePathsCount();
           }
 
           // add files to representation
@@ -171,7 +141,7 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
           earkSip.addRepresentation(rep);
         }
 
-        currentAction = I18n.t(Constants.I18N_SIMPLE_SIP_CREATOR_DOCUMENTATION);
+        startPhase(Phase.DOCUMENTATION, I18n.t(Constants.I18N_SIMPLE_SIP_CREATOR_DOCUMENTATION));
         Set<TreeNode> docs = sip.getDocumentation();
         for (TreeNode tn : docs) {
           addDocToSip(tn, new ArrayList<>(), earkSip);
@@ -181,10 +151,10 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
       earkSip.setHeader(ipHeader);
       earkSip.addCreatorSoftwareAgent(agentName);
 
-      currentAction = I18n.t(Constants.I18N_SIMPLE_SIP_CREATOR_INIT_ZIP);
-      Path sipPath = earkSip.build(outputPath, createSipName(descriptionObject, sipNameBuilder));
+      startBuild(earkSip);
+      Path sipPath = earkSip.build(outputPath, getSipName(descriptionObject));
 
-      createdSipsCount++;
+      createdSipsCount.incrementAndGet();
       return new Pair(sipPath, earkSip);
     } catch (InterruptedException e) {
       canceled = true;
@@ -202,7 +172,7 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
   }
 
   private void addFileToRepresentation(TreeNode tn, List<String> relativePath, IPRepresentation rep) {
-    if (Files.isDirectory(tn.getPath())) {
+    if (tn.isDirectory()) {
       // add this directory to the path list
       List<String> newRelativePath = new ArrayList<>(relativePath);
       newRelativePath.add(tn.getPath().getFileName().toString());
@@ -213,13 +183,14 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
     } else {
       // if it's a file, add it to the representation
       rep.addFile(tn.getPath(), relativePath);
-      currentSIPadded++;
-      currentAction = String.format("%s (%d/%d)", actionCopyingData, currentSIPadded, currentSIPsize);
+      fileAdded(tn.getPath());
+      SipProgress progress = getCurrentSip();
+      progress.action = String.format("%s (%d/%d)", actionCopyingData, progress.filesAdded, progress.filesCount);
     }
   }
 
   private void addDocToSip(TreeNode tn, List<String> relativePath, SIP earkSip) {
-    if (Files.isDirectory(tn.getPath())) {
+    if (tn.isDirectory()) {
       // add this directory to the path list
       List<String> newRelativePath = new ArrayList<>(relativePath);
       newRelativePath.add(tn.getPath().getFileName().toString());
@@ -236,18 +207,18 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
 
   @Override
   public void sipBuildRepresentationsProcessingStarted(int i) {
-    // do nothing
+    startPhase(Phase.REPRESENTATIONS);
   }
 
   @Override
   public void sipBuildRepresentationProcessingStarted(int size) {
-    repProcessingSize = size;
+    getCurrentSip().repProcessingSize = size;
   }
 
   @Override
   public void sipBuildRepresentationProcessingCurrentStatus(int i) {
     String format = I18n.t(Constants.I18N_CREATIONMODALPROCESSING_REPRESENTATION) + " (%d/%d)";
-    currentAction = String.format(format, i, repProcessingSize);
+    setCurrentAction(String.format(format, i, getCurrentSip().repProcessingSize));
   }
 
   @Override
@@ -262,21 +233,16 @@ public class EarkSipCreator extends SimpleSipCreator implements SIPObserver {
 
   @Override
   public void sipBuildPackagingStarted(int current) {
-    countFilesOfZip = current;
+    packagingStarted(current);
   }
 
   @Override
   public void sipBuildPackagingCurrentStatus(int current) {
-    String format = I18n.t(Constants.I18N_CREATIONMODALPROCESSING_EARK_PROGRESS);
-    String progress = String.format(format, current, countFilesOfZip);
-    currentAction = progress;
-    currentSipProgress = ((float) current) / countFilesOfZip;
-    currentSipProgress /= sipPreviewCount;
+    packagingStatus(current);
   }
 
   @Override
   public void sipBuildPackagingEnded() {
-    currentAction = actionFinalizingSip;
-    currentSipProgress = 0;
+    packagingEnded();
   }
 }
@@ -0,0 +1,262 @@
+package org.roda.rodain.core.creation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metrics of a SIP exportation: the time spent in each phase of the
+ * creation of each SIP, and the amount of data and files exported.
+ * <p/>
+ * <p>
+ * The metrics of each SIP are added when its creation ends, by the worker
+ * thread that created it. All the methods can be called while the exportation
+ * is running.
+ * </p>
+ *
+ * @since 18-10-2026.
+ */
+public class ExportMetrics {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExportMetrics.class.getName());
+
+  private static final String CSV_FIELD_SIP = "SIP";
+  private static final String CSV_FIELD_SUCCESS = "success";
+  private static final String CSV_FIELD_FILES = "files";
+  private static final String CSV_FIELD_BYTES = "bytes";
+  private static final String CSV_FIELD_TOTAL = "total (ms)";
+  private static final String CSV_FIELD_PHASE_FORMAT = "%s (ms)";
+
+  /**
+   * The phases of the creation of a SIP. The first ones are done by the SIP
+   * creators, the last ones are reported by the SIP builder. The checksums are
+   * computed while the files are packaged.
+   */
+  public enum Phase {
+    METADATA, DATA, DOCUMENTATION, BUILD, REPRESENTATIONS, PACKAGING, FINALIZING
+  }
+
+  private final Instant startInstant = Instant.now();
+  private volatile Instant endInstant;
+  private final Queue<SipMetrics> sips = new ConcurrentLinkedQueue<>();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder files = new LongAdder();
+  private final Map<Phase, LongAdder> phaseTimes = new EnumMap<>(Phase.class);
+
+  public ExportMetrics() {
+    for (Phase phase : Phase.values()) {
+      phaseTimes.put(phase, new LongAdder());
+    }
+  }
+
+  /**
+   * Adds the metrics of a SIP whose creation has ended.
+   *
+   * @param sip
+   *          The metrics of the SIP
+   */
+  public void add(SipMetrics sip) {
+    sips.add(sip);
+    bytes.add(sip.bytes);
+    files.add(sip.files);
+    sip.phaseTimes.forEach((phase, time) -> phaseTimes.get(phase).add(time));
+  }
+
+  /**
+   * Marks the end of the exportation.
+   */
+  public void end() {
+    endInstant = Instant.now();
+  }
+
+  /**
+   * @return The metrics of the SIPs whose creation has ended.
+   */
+  public List<SipMetrics> getSipMetrics() {
+    return Collections.unmodifiableList(new ArrayList<>(sips));
+  }
+
+  /**
+   * @return The time spent in each phase, in milliseconds, summed for all the
+   *         SIPs. With several worker threads the sum can be bigger than the
+   *         elapsed time.
+   */
+  public Map<Phase, Long> getPhaseTimes() {
+    Map<Phase, Long> result = new EnumMap<>(Phase.class);
+    phaseTimes.forEach((phase, time) -> result.put(phase, time.sum()));
+    return result;
+  }
+
+  /**
+   * @return The size of the data files of the created SIPs.
+   */
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  /**
+   * @return The number of data files of the created SIPs.
+   */
+  public long getFiles() {
+    return files.sum();
+  }
+
+  /**
+   * @return The time since the exportation started, or its duration if it has
+   *         ended, in milliseconds.
+   */
+  public long getElapsedTime() {
+    Instant end = endInstant != null ? endInstant : Instant.now();
+    return Duration.between(startInstant, end).toMillis();
+  }
+
+  /**
+   * @return The average number of bytes exported per second.
+   */
+  public double getBytesPerSecond() {
+    return perSecond(getBytes());
+  }
+
+  /**
+   * @return The average number of files exported per second.
+   */
+  public double getFilesPerSecond() {
+    return perSecond(getFiles());
+  }
+
+  private double perSecond(long value) {
+    long elapsed = getElapsedTime();
+    return elapsed > 0 ? value * 1000.0 / elapsed : 0;
+  }
+
+  /**
+   * Writes the metrics of each SIP to a CSV file.
+   *
+   * @param file
+   *          The path of the CSV file
+   */
+  public void writeCsv(Path file) {
+    try (BufferedWriter writer = Files.newBufferedWriter(file);
+      CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withRecordSeparator(System.lineSeparator()))) {
+      List<String> headers = new ArrayList<>();
+      headers.add(CSV_FIELD_SIP);
+      headers.add(CSV_FIELD_SUCCESS);
+      headers.add(CSV_FIELD_FILES);
+      headers.add(CSV_FIELD_BYTES);
+      headers.add(CSV_FIELD_TOTAL);
+      for (Phase phase : Phase.values()) {
+        headers.add(String.format(CSV_FIELD_PHASE_FORMAT, phase.name().toLowerCase()));
+      }
+      printer.printRecord(headers);
+
+      for (SipMetrics sip : sips) {
+        List<Object> line = new ArrayList<>();
+        line.add(sip.name);
+        line.add(sip.success);
+        line.add(sip.files);
+        line.add(sip.bytes);
+        line.add(sip.getTotalTime());
+        for (Phase phase : Phase.values()) {
+          line.add(sip.getPhaseTime(phase));
+        }
+        printer.printRecord(line);
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error writing the export metrics to '{}'", file, e);
+    }
+  }
+
+  /**
+   * The metrics of the creation of a single SIP. Only changed by the worker
+   * thread creating the SIP, before it's added to the ExportMetrics.
+   */
+  public static class SipMetrics {
+    private final String name;
+    private final Map<Phase, Long> phaseTimes = new EnumMap<>(Phase.class);
+    private long files = 0;
+    private long bytes = 0;
+    private boolean success = false;
+
+    private Phase currentPhase;
+    private long phaseStart;
+
+    SipMetrics(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Ends the current phase, if any, and starts a new one.
+     *
+     * @param phase
+     *          The new phase, or null to only end the current one
+     */
+    void startPhase(Phase phase) {
+      long now = System.currentTimeMillis();
+      if (currentPhase != null) {
+        phaseTimes.merge(currentPhase, now - phaseStart, Long::sum);
+      }
+      currentPhase = phase;
+      phaseStart = now;
+    }
+
+    void addFile(long size) {
+      files++;
+      bytes += size;
+    }
+
+    void setSuccess(boolean success) {
+      this.success = success;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isSuccess() {
+      return success;
+    }
+
+    public long getFiles() {
+      return files;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * @param phase
+     *          The phase
+     * @return The time spent in the phase, in milliseconds.
+     */
+    public long getPhaseTime(Phase phase) {
+      return phaseTimes.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return The time spent creating the SIP, in milliseconds.
+     */
+    public long getTotalTime() {
+      long result = 0;
+      for (long time : phaseTimes.values()) {
+        result += time;
+      }
+      return result;
+    }
+  }
+}
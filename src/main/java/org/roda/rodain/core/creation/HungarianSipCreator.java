@@ -3,16 +3,12 @@ package org.roda.rodain.core.creation;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.roda.rodain.core.ConfigurationManager;
 import org.roda.rodain.core.Constants;
@@ -20,6 +16,7 @@ import org.roda.rodain.core.Constants.MetadataOption;
 import org.roda.rodain.core.Controller;
 import org.roda.rodain.core.I18n;
 import org.roda.rodain.core.Pair;
+import org.roda.rodain.core.creation.ExportMetrics.Phase;
 import org.roda.rodain.core.rules.TreeNode;
 import org.roda.rodain.core.schema.DescriptiveMetadata;
 import org.roda.rodain.core.schema.Sip;
@@ -43,12 +40,7 @@ import org.slf4j.LoggerFactory;
 
 public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver {
   private static final Logger LOGGER = LoggerFactory.getLogger(HungarianSipCreator.class.getName());
-  private int countFilesOfZip;
-  private int currentSIPadded = 0;
-  private int currentSIPsize = 0;
-  private int repProcessingSize;
 
-  private SIPNameBuilder sipNameBuilder;
   private final IPHeader ipHeader;
 
   /**
@@ -62,37 +54,39 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
    */
   public HungarianSipCreator(Path outputPath, Map<Sip, List<String>> previews, SIPNameBuilder sipNameBuilder,
     boolean createReport, IPHeader ipHeader) {
-    super(outputPath, previews, createReport);
-    this.sipNameBuilder = sipNameBuilder;
+    super(outputPath, previews, sipNameBuilder, createReport);
     this.ipHeader = ipHeader;
   }
 
   /**
-   * Attempts to create an Hungarian SIP of each SipPreview
+   * Creates the header of a SIP. Each SIP gets its own copy of the header
+   * received in the constructor, since building the SIP adds to it.
    */
-  @Override
-  public void run() {
-    Map<Path, Object> sips = new HashMap<>();
-    for (Sip preview : previews.keySet()) {
-      if (canceled) {
-        break;
-      }
-
-      Pair pathSIP = createHungarianSip(preview);
-      if (pathSIP != null) {
-        sips.put((Path) pathSIP.getKey(), (SIP) pathSIP.getValue());
-      }
-    }
-
-    if (createReport) {
-      createReport(sips);
-    }
-
-    currentAction = I18n.t(Constants.I18N_DONE);
+  private IPHeader createHeader() {
+    IPHeader header = new IPHeader();
+    header.setStatus(ipHeader.getStatus());
+    ipHeader.getAgents().forEach(header::addAgent);
+    ipHeader.getAltRecordIDs().forEach(header::addAltRecordID);
+
+    // 2017-05-10 bferreira: these are constant. see issue #286
+    IPAltRecordID deliveryType = new IPAltRecordID();
+    deliveryType.setType("DELIVERYTYPE");
+    deliveryType.setValue("STRUKTÚRÁLATLAN");
+    header.addAltRecordID(deliveryType);
+
+    IPAltRecordID deliverySpecification = new IPAltRecordID();
+    deliverySpecification.setType("DELIVERYSPECIFICATION");
+    deliverySpecification.setValue(
+      "34/2016. (XI. 30.) EMMI rendelet az elektronikus formában tárolt iratok közlevéltári átvételének eljárásrendjéről és műszaki követelményeiről");
+    header.addAltRecordID(deliverySpecification);
+    return header;
   }
 
-  private Pair createHungarianSip(Sip descriptionObject) {
-    Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+  /**
+   * Attempts to create an Hungarian SIP of the SipPreview
+   */
+  @Override
+  protected Pair createSip(Sip descriptionObject) {
     try {
       IPContentType contentType = descriptionObject instanceof SipPreview
         ? ((SipPreview) descriptionObject).getContentType() : IPContentType.getMIXED();
@@ -106,9 +100,7 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
         hungarianSip.setStatus(IPStatus.NEW);
       }
 
-      currentSipProgress = 0;
-      currentSipName = descriptionObject.getTitle();
-      currentAction = actionCopyingMetadata;
+      startPhase(Phase.METADATA, actionCopyingMetadata);
 
       for (DescriptiveMetadata descObjMetadata : descriptionObject.getMetadata()) {
         MetadataType metadataType = new MetadataType(MetadataType.MetadataTypeEnum.OTHER);
@@ -138,9 +130,8 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
         }
 
         if (metadataPath == null) {
-          String content = descriptionObject.getMetadataWithReplaces(descObjMetadata);
-          metadataPath = tempDir.resolve(descObjMetadata.getId());
-          FileUtils.writeStringToFile(metadataPath.toFile(), content, Constants.RODAIN_DEFAULT_ENCODING);
+          String content = descriptionObject.getMetadataToExport(descObjMetadata, exportDate);
+          metadataPath = writeTempFile(descObjMetadata.getId(), content);
         }
 
         IPFile metadataFile = new IPFile(metadataPath);
@@ -151,7 +142,7 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
         hungarianSip.addDescriptiveMetadata(metadata);
       }
 
-      currentAction = actionCopyingData;
+      startPhase(Phase.DATA, actionCopyingData);
       if (descriptionObject instanceof SipPreview) {
         SipPreview sip = (SipPreview) descriptionObject;
         for (SipRepresentation sr : sip.getRepresentations()) {
@@ -159,11 +150,11 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
           rep.setContentType(sr.getType());
 
           Set<TreeNode> files = sr.getFiles();
-          currentSIPadded = 0;
-          currentSIPsize = 0;
+          getCurrentSip().filesAdded = 0;
+          getCurrentSip().filesCount = 0;
           // count files
           for (TreeNode tn : files) {
-            currentSIPsize += tn.getFullTreePaths().size();
+            getCurrentSip().filesCount += tn.getFullTreePathsCount();
           }
           // add files to representation
           for (TreeNode tn : files) {
@@ -173,28 +164,16 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
           hungarianSip.addRepresentation(rep);
         }
 
-        currentAction = I18n.t(Constants.I18N_SIMPLE_SIP_CREATOR_DOCUMENTATION);
+        startPhase(Phase.DOCUMENTATION, I18n.t(Constants.I18N_SIMPLE_SIP_CREATOR_DOCUMENTATION));
         Set<TreeNode> docs = sip.getDocumentation();
         for (TreeNode tn : docs) {
           addDocToZip(tn, new ArrayList<>(), hungarianSip);
         }
       }
 
-      currentAction = I18n.t(Constants.I18N_SIMPLE_SIP_CREATOR_INIT_ZIP);
+      startBuild(hungarianSip);
 
-      // 2017-05-10 bferreira: these are constant. see issue #286
-      IPAltRecordID deliveryType = new IPAltRecordID();
-      deliveryType.setType("DELIVERYTYPE");
-      deliveryType.setValue("STRUKTÚRÁLATLAN");
-      ipHeader.addAltRecordID(deliveryType);
-
-      IPAltRecordID deliverySpecification = new IPAltRecordID();
-      deliverySpecification.setType("DELIVERYSPECIFICATION");
-      deliverySpecification.setValue(
-        "34/2016. (XI. 30.) EMMI rendelet az elektronikus formában tárolt iratok közlevéltári átvételének eljárásrendjéről és műszaki követelményeiről");
-      ipHeader.addAltRecordID(deliverySpecification);
-
-      hungarianSip.setHeader(ipHeader);
+      hungarianSip.setHeader(createHeader());
       hungarianSip.addCreatorSoftwareAgent(Constants.SIP_DEFAULT_AGENT_NAME).setNote(Controller.getCurrentVersion());
 
       try (InputStream stream = ClassLoader
@@ -202,9 +181,9 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
         String template = IOUtils.toString(stream, Charset.defaultCharset());
         hungarianSip.setFolderTemplate(template);
       }
-      Path sipPath = hungarianSip.build(outputPath, createSipName(descriptionObject, sipNameBuilder));
+      Path sipPath = hungarianSip.build(outputPath, getSipName(descriptionObject));
 
-      createdSipsCount++;
+      createdSipsCount.incrementAndGet();
       return new Pair(sipPath, hungarianSip);
     } catch (InterruptedException e) {
       canceled = true;
@@ -222,7 +201,7 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
   }
 
   private void addFileToRepresentation(TreeNode tn, List<String> relativePath, IPRepresentation rep) {
-    if (Files.isDirectory(tn.getPath())) {
+    if (tn.isDirectory()) {
       // add this directory to the path list
       List<String> newRelativePath = new ArrayList<>(relativePath);
       newRelativePath.add(tn.getPath().getFileName().toString());
@@ -234,13 +213,14 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
     } else {
       // if it's a file, add it to the representation
       rep.addFile(tn.getPath(), relativePath);
-      currentSIPadded++;
-      currentAction = String.format("%s (%d/%d)", actionCopyingData, currentSIPadded, currentSIPsize);
+      fileAdded(tn.getPath());
+      SipProgress progress = getCurrentSip();
+      progress.action = String.format("%s (%d/%d)", actionCopyingData, progress.filesAdded, progress.filesCount);
     }
   }
 
   private void addDocToZip(TreeNode tn, List<String> relativePath, SIP hungarianSip) {
-    if (Files.isDirectory(tn.getPath())) {
+    if (tn.isDirectory()) {
       // add this directory to the path list
       List<String> newRelativePath = new ArrayList<>(relativePath);
       newRelativePath.add(tn.getPath().getFileName().toString());
@@ -257,18 +237,18 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
 
   @Override
   public void sipBuildRepresentationsProcessingStarted(int i) {
-    // do nothing
+    startPhase(Phase.REPRESENTATIONS);
   }
 
   @Override
   public void sipBuildRepresentationProcessingStarted(int size) {
-    repProcessingSize = size;
+    getCurrentSip().repProcessingSize = size;
   }
 
   @Override
   public void sipBuildRepresentationProcessingCurrentStatus(int i) {
     String format = I18n.t(Constants.I18N_CREATIONMODALPROCESSING_REPRESENTATION) + " (%d/%d)";
-    currentAction = String.format(format, i, repProcessingSize);
+    setCurrentAction(String.format(format, i, getCurrentSip().repProcessingSize));
   }
 
   @Override
@@ -283,21 +263,16 @@ public class HungarianSipCreator extends SimpleSipCreator implements SIPObserver
 
   @Override
   public void sipBuildPackagingStarted(int current) {
-    countFilesOfZip = current;
+    packagingStarted(current);
   }
 
   @Override
   public void sipBuildPackagingCurrentStatus(int current) {
-    String format = I18n.t(Constants.I18N_CREATIONMODALPROCESSING_EARK_PROGRESS);
-    String progress = String.format(format, current, countFilesOfZip);
-    currentAction = progress;
-    currentSipProgress = ((float) current) / countFilesOfZip;
-    currentSipProgress /= sipPreviewCount;
+    packagingStatus(current);
   }
 
   @Override
   public void sipBuildPackagingEnded() {
-    currentAction = actionFinalizingSip;
-    currentSipProgress = 0;
+    packagingEnded();
   }
 }
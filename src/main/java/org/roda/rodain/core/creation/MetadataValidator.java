@@ -0,0 +1,207 @@
+package org.roda.rodain.core.creation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.validation.Schema;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.roda.rodain.core.ConfigurationManager;
+import org.roda.rodain.core.Constants;
+import org.roda.rodain.core.Controller;
+import org.roda.rodain.core.schema.DescriptiveMetadata;
+import org.roda.rodain.core.schema.Sip;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+/**
+ * Validates the metadata of a batch of SIPs against the schemas of their
+ * metadata types, so that invalid metadata is found before the SIPs are
+ * exported. Used by the "Validate metadata" action of the main menu.
+ * <p/>
+ * <p>
+ * The SIPs are validated by a pool of threads, one SIP per task. The schemas
+ * are compiled once and shared by all the threads. Metadata without an
+ * associated schema isn't validated.
+ * </p>
+ *
+ * @since 18-10-2026.
+ */
+public class MetadataValidator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetadataValidator.class.getName());
+
+  private static final String CSV_FIELD_SIP_ID = "SIP id";
+  private static final String CSV_FIELD_SIP_TITLE = "SIP title";
+  private static final String CSV_FIELD_METADATA = "metadata";
+  private static final String CSV_FIELD_MESSAGE = "message";
+  private static final String MESSAGE_INVALID = "The metadata is not valid according to its schema";
+
+  private final Collection<Sip> sips;
+  private final int parallelism;
+  private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+  private volatile boolean canceled = false;
+  // the date of the auto-generated "now" fields of all the metadata
+  private final Date validationDate = new Date();
+
+  /**
+   * Creates a new metadata validator that validates as many SIPs at the same
+   * time as the SIP creators create.
+   *
+   * @param sips
+   *          The SIPs whose metadata will be validated
+   */
+  public MetadataValidator(Collection<Sip> sips) {
+    this(sips, getConfigParallelism());
+  }
+
+  /**
+   * Creates a new metadata validator.
+   *
+   * @param sips
+   *          The SIPs whose metadata will be validated
+   * @param parallelism
+   *          The number of SIPs validated at the same time
+   */
+  public MetadataValidator(Collection<Sip> sips, int parallelism) {
+    this.sips = sips;
+    this.parallelism = Math.max(parallelism, 1);
+  }
+
+  private static int getConfigParallelism() {
+    int configParallelism = ConfigurationManager.getConfigAsInt(Constants.CONF_K_SIP_CREATION_PARALLELISM, 1);
+    return configParallelism > 0 ? configParallelism : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Validates the metadata of all the SIPs, waiting for all the validations to
+   * end.
+   *
+   * @return The metadata that failed the validation.
+   */
+  public List<Failure> validate() {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(sips.size(), 1)));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Sip sip : sips) {
+        futures.add(executor.submit(() -> {
+          if (!canceled) {
+            validate(sip);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Error validating metadata", e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      canceled = true;
+      Thread.currentThread().interrupt();
+    } finally {
+      if (canceled) {
+        executor.shutdownNow();
+      } else {
+        executor.shutdown();
+      }
+    }
+    return getFailures();
+  }
+
+  private void validate(Sip sip) {
+    for (DescriptiveMetadata dom : sip.getMetadata()) {
+      try {
+        Schema schema = dom.getSchema();
+        if (schema != null && !Controller.validateSchema(sip.getMetadataToExport(dom, validationDate), schema)) {
+          failures.add(new Failure(sip, dom.getId(), MESSAGE_INVALID));
+        }
+      } catch (SAXException e) {
+        failures.add(new Failure(sip, dom.getId(), e.getMessage()));
+      }
+    }
+  }
+
+  /**
+   * @return The metadata that failed the validation so far.
+   */
+  public List<Failure> getFailures() {
+    return Collections.unmodifiableList(new ArrayList<>(failures));
+  }
+
+  /**
+   * @return The SIPs with at least one metadata that failed the validation.
+   */
+  public Set<Sip> getInvalidSips() {
+    Set<Sip> result = new HashSet<>();
+    for (Failure failure : failures) {
+      result.add(failure.sip);
+    }
+    return result;
+  }
+
+  /**
+   * Writes the failures of the validation to a CSV file.
+   *
+   * @param file
+   *          The path of the CSV file
+   */
+  public void writeCsv(Path file) {
+    try (BufferedWriter writer = Files.newBufferedWriter(file);
+      CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.withRecordSeparator(System.lineSeparator()))) {
+      printer.printRecord(CSV_FIELD_SIP_ID, CSV_FIELD_SIP_TITLE, CSV_FIELD_METADATA, CSV_FIELD_MESSAGE);
+      for (Failure failure : failures) {
+        printer.printRecord(failure.sip.getId(), failure.sip.getTitle(), failure.metadataId, failure.message);
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error writing the metadata validation report to '{}'", file, e);
+    }
+  }
+
+  /**
+   * A metadata of a SIP that failed the validation.
+   */
+  public static class Failure {
+    private final Sip sip;
+    private final String metadataId;
+    private final String message;
+
+    Failure(Sip sip, String metadataId, String message) {
+      this.sip = sip;
+      this.metadataId = metadataId;
+      this.message = message;
+    }
+
+    public Sip getSip() {
+      return sip;
+    }
+
+    public String getMetadataId() {
+      return metadataId;
+    }
+
+    /**
+     * @return The reason of the failure, usually the first validation error.
+     */
+    public String getMessage() {
+      return message;
+    }
+  }
+}
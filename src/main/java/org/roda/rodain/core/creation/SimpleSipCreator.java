@@ -5,13 +5,30 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -24,12 +41,22 @@ import javax.xml.transform.stream.StreamSource;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.io.FileUtils;
+import org.roda.rodain.core.ConfigurationManager;
 import org.roda.rodain.core.Constants;
 import org.roda.rodain.core.Controller;
 import org.roda.rodain.core.I18n;
+import org.roda.rodain.core.Pair;
+import org.roda.rodain.core.creation.ExportMetrics.Phase;
 import org.roda.rodain.core.report.InventoryReportCreator;
+import org.roda.rodain.core.rules.TreeNode;
 import org.roda.rodain.core.schema.Sip;
+import org.roda.rodain.core.sip.SipPreview;
+import org.roda.rodain.core.sip.SipRepresentation;
 import org.roda.rodain.core.sip.naming.SIPNameBuilder;
+import org.roda.rodain.core.source.FileScanCache;
+import org.roda.rodain.ui.creation.CreationModalProcessing;
+import org.roda_project.commons_ip.model.SIP;
+import org.roda_project.commons_ip.utils.ZipEntryInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -52,49 +79,78 @@ public abstract class SimpleSipCreator extends Thread {
   protected String agentName = Constants.SIP_DEFAULT_AGENT_NAME;
 
   protected final Path outputPath;
+  protected final SIPNameBuilder sipNameBuilder;
   protected final boolean createReport;
   protected final Map<Sip, List<String>> previews;
   protected final int sipPreviewCount;
+  protected final int parallelism;
 
-  protected int createdSipsCount = 0;
-  protected String currentSipName;
-  protected String currentAction;
+  protected final AtomicInteger createdSipsCount = new AtomicInteger();
+  protected volatile String currentSipName;
+  protected volatile String currentAction;
 
   // ETA
-  protected long sipSize;
-  protected long sipTransferedSize;
-  protected long sipTransferedTime;
-  protected long transferedSize;
-  protected long transferedTime;
-  protected long allSipsSize;
-  protected Instant lastInstant;
-  protected Instant sipStartInstant;
-
-  protected boolean canceled = false;
-  protected float currentSipProgress;
+  // each SIP counts as its size plus this, so that SIPs without data also count
+  // for the progress
+  private static final long SIP_BASE_WEIGHT = 64 * 1024;
+  // weight of the last throughput sample in the smoothed throughput
+  private static final double ETA_SMOOTHING_FACTOR = 0.2;
+  private static final long ETA_SAMPLE_INTERVAL = 1000;
+  protected volatile Instant startInstant;
+  private final Map<Sip, Long> sipsWeight = new HashMap<>();
+  private volatile long allSipsWeight = 0;
+  private final LongAdder transferedWeight = new LongAdder();
+  private long lastSampleTime;
+  private double lastSampleWeight;
+  private double smoothedThroughput = -1;
+
+  protected volatile boolean canceled = false;
+  // the date of the auto-generated "now" fields of all the exported metadata
+  protected Date exportDate;
 
   protected Set<Sip> unsuccessful;
 
+  protected final ExportMetrics metrics = new ExportMetrics();
+
+  // the SIPs being created, by the order they were started, and the one being
+  // created by each worker thread
+  private final Set<SipProgress> sipsInProgress = Collections.synchronizedSet(new LinkedHashSet<>());
+  private final ThreadLocal<SipProgress> workerSip = new ThreadLocal<>();
+  // the lines of the inventory report of each created SIP
+  private final Map<Sip, List<List<String>>> reportLines = new ConcurrentHashMap<>();
+  // the names of the SIPs, assigned in the order of the exportation
+  private final Map<Sip, String> sipNames = new ConcurrentHashMap<>();
+
   /**
    * Creates a simple SIP exporter.
    * <p/>
    * <p>
-   * This object doesn't export any SIPs, it must be extended and the run()
-   * method overridden.
+   * This object doesn't export any SIPs, it must be extended and the
+   * createSip() method overridden. The SIPs are created by a pool of worker
+   * threads, its size taken from the configuration.
    * </p>
    *
    * @param outputPath
    *          The path to the output folder of the SIP exportation
    * @param previews
    *          The map with the SIPs that will be exported
+   * @param sipNameBuilder
+   *          The builder of the names of the SIPs
+   * @param createReport
+   *          True if the inventory report must be created
    */
-  public SimpleSipCreator(Path outputPath, Map<Sip, List<String>> previews, boolean createReport) {
+  public SimpleSipCreator(Path outputPath, Map<Sip, List<String>> previews, SIPNameBuilder sipNameBuilder,
+    boolean createReport) {
     this.outputPath = outputPath;
+    this.sipNameBuilder = sipNameBuilder;
     this.createReport = createReport;
     this.previews = previews;
     sipPreviewCount = previews.size();
 
-    unsuccessful = new HashSet<>();
+    int configParallelism = ConfigurationManager.getConfigAsInt(Constants.CONF_K_SIP_CREATION_PARALLELISM, 1);
+    parallelism = configParallelism > 0 ? configParallelism : Runtime.getRuntime().availableProcessors();
+
+    unsuccessful = ConcurrentHashMap.newKeySet();
 
     try {
       agentName = String.format(Constants.SIP_AGENT_NAME_FORMAT, Controller.getCurrentVersion());
@@ -107,7 +163,7 @@ public abstract class SimpleSipCreator extends Thread {
    * @return The number of SIPs that have already been created.
    */
   public int getCreatedSipsCount() {
-    return createdSipsCount;
+    return createdSipsCount.get();
   }
 
   /**
@@ -118,17 +174,243 @@ public abstract class SimpleSipCreator extends Thread {
   }
 
   /**
-   * @return The action currently being done on the SIP.
+   * @return The action currently being done on the SIP. When several SIPs are
+   *         being created, the action of the one that started first.
    */
   public String getCurrentAction() {
-    return currentAction;
+    SipProgress progress = getOldestSipInProgress();
+    return progress != null ? progress.action : currentAction;
   }
 
   /**
-   * @return The name of the SIP currently being processed.
+   * @return The name of the SIP currently being processed. When several SIPs
+   *         are being created, the name of the one that started first.
    */
   public String getCurrentSipName() {
-    return currentSipName;
+    SipProgress progress = getOldestSipInProgress();
+    return progress != null ? progress.name : currentSipName;
+  }
+
+  /**
+   * @return The number of SIPs waiting to be created.
+   */
+  public int getQueuedSipsCount() {
+    int result = sipPreviewCount - createdSipsCount.get() - unsuccessful.size() - sipsInProgress.size();
+    return canceled ? 0 : Math.max(result, 0);
+  }
+
+  /**
+   * @return The metrics of the exportation.
+   */
+  public ExportMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return The progress of the exportation, from 0 to 1, weighted by the size
+   *         of the SIPs.
+   */
+  public double getProgress() {
+    long all = allSipsWeight;
+    return all > 0 ? Math.min(1, getTransferedWeight() / all) : 0;
+  }
+
+  private double getTransferedWeight() {
+    double result = transferedWeight.sum();
+    synchronized (sipsInProgress) {
+      for (SipProgress progress : sipsInProgress) {
+        result += progress.weight * progress.progress;
+      }
+    }
+    return result;
+  }
+
+  private long computeWeight(Sip sip) {
+    long size = 0;
+    if (sip instanceof SipPreview) {
+      SipPreview preview = (SipPreview) sip;
+      for (SipRepresentation sr : preview.getRepresentations()) {
+        for (TreeNode tn : sr.getFiles()) {
+          size += tn.getTreeSize();
+        }
+      }
+      for (TreeNode tn : preview.getDocumentation()) {
+        size += tn.getTreeSize();
+      }
+    }
+    return size + SIP_BASE_WEIGHT;
+  }
+
+  private SipProgress getOldestSipInProgress() {
+    synchronized (sipsInProgress) {
+      Iterator<SipProgress> iterator = sipsInProgress.iterator();
+      return iterator.hasNext() ? iterator.next() : null;
+    }
+  }
+
+  /**
+   * @return The progress of the SIP being created by the current thread.
+   */
+  protected SipProgress getCurrentSip() {
+    return workerSip.get();
+  }
+
+  /**
+   * Starts a new phase of the creation of the SIP created by the current
+   * thread, ending the previous one.
+   *
+   * @param phase
+   *          The phase
+   */
+  protected void startPhase(Phase phase) {
+    getCurrentSip().metrics.startPhase(phase);
+  }
+
+  /**
+   * Starts a new phase of the creation of the SIP created by the current
+   * thread, ending the previous one, and sets the action being done.
+   *
+   * @param phase
+   *          The phase
+   * @param action
+   *          The action being done on the SIP
+   */
+  protected void startPhase(Phase phase, String action) {
+    startPhase(phase);
+    setCurrentAction(action);
+  }
+
+  /**
+   * Counts a data file added to the SIP created by the current thread.
+   *
+   * @param path
+   *          The path of the file
+   */
+  protected void fileAdded(Path path) {
+    SipProgress progress = getCurrentSip();
+    progress.filesAdded++;
+    long size = 0;
+    try {
+      // the exported files aren't read again, so they aren't added to the cache
+      size = FileScanCache.peekAttributes(path).size();
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read the size of '{}'", path, e);
+    }
+    progress.metrics.addFile(size);
+  }
+
+  /**
+   * Starts the build of the SIP created by the current thread. The SIP is kept
+   * to follow the files written to it while it's packaged.
+   *
+   * @param sip
+   *          The SIP being built
+   */
+  protected void startBuild(SIP sip) {
+    startPhase(Phase.BUILD, I18n.t(Constants.I18N_SIMPLE_SIP_CREATOR_INIT_ZIP));
+    getCurrentSip().sip = sip;
+  }
+
+  /**
+   * Starts the packaging of the SIP created by the current thread.
+   *
+   * @param entries
+   *          The number of files written to the package
+   */
+  protected void packagingStarted(int entries) {
+    startPhase(Phase.PACKAGING);
+    SipProgress progress = getCurrentSip();
+    progress.countFilesOfZip = entries;
+    progress.bytesWritten = 0;
+    if (progress.sip != null) {
+      progress.zipEntries = new ArrayList<>(progress.sip.getZipEntries().values());
+    }
+  }
+
+  /**
+   * Updates the progress of the SIP created by the current thread with the
+   * bytes of the files already written to the package, against the size of the
+   * SIP.
+   *
+   * @param current
+   *          The number of files already written to the package
+   */
+  protected void packagingStatus(int current) {
+    SipProgress progress = getCurrentSip();
+    // the files are written in the order of the entries, one per call
+    if (current > 0 && current <= progress.zipEntries.size()) {
+      Path path = progress.zipEntries.get(current - 1).getFilePath();
+      try {
+        progress.bytesWritten += FileScanCache.peekAttributes(path).size();
+      } catch (IOException e) {
+        LOGGER.debug("Unable to read the size of '{}'", path, e);
+      }
+    }
+    String format = I18n.t(Constants.I18N_CREATIONMODALPROCESSING_EARK_PROGRESS);
+    progress.action = String.format(format, current, progress.countFilesOfZip);
+    progress.progress = Math.min(1f, ((float) progress.bytesWritten) / progress.weight);
+  }
+
+  /**
+   * Ends the packaging of the SIP created by the current thread.
+   */
+  protected void packagingEnded() {
+    startPhase(Phase.FINALIZING, actionFinalizingSip);
+    SipProgress progress = getCurrentSip();
+    progress.progress = 1;
+    progress.sip = null;
+    progress.zipEntries = Collections.emptyList();
+  }
+
+  /**
+   * Sets the action being done on the SIP created by the current thread.
+   *
+   * @param action
+   *          The action
+   */
+  protected void setCurrentAction(String action) {
+    getCurrentSip().action = action;
+  }
+
+  /**
+   * Gets the temporary directory for the generated files of the SIP being
+   * created by the current thread, creating it if needed. Each SIP has its own
+   * directory, since the files of SIPs created at the same time can have the
+   * same name.
+   * <p/>
+   * <p>
+   * The directory is deleted as soon as the SIP is built, after the lines of
+   * the inventory report, which read the size of the files, are created.
+   * </p>
+   *
+   * @return The path of the directory
+   * @throws IOException
+   *           If the directory can't be created
+   */
+  protected Path getTempDirectory() throws IOException {
+    SipProgress progress = getCurrentSip();
+    if (progress.tempDirectory == null) {
+      progress.tempDirectory = Files.createTempDirectory(Constants.SIP_TEMP_DIR_PREFIX);
+    }
+    return progress.tempDirectory;
+  }
+
+  /**
+   * Writes a generated metadata file of the SIP being created by the current
+   * thread to its temporary directory.
+   *
+   * @param name
+   *          The name of the file
+   * @param content
+   *          The content of the file
+   * @return The path of the written file
+   * @throws IOException
+   *           If the file can't be written
+   */
+  protected Path writeTempFile(String name, String content) throws IOException {
+    Path file = getTempDirectory().resolve(name);
+    Files.write(file, content.getBytes(Constants.RODAIN_DEFAULT_ENCODING));
+    return file;
   }
 
   protected void deleteDirectory(Path dir) {
@@ -195,23 +477,154 @@ public abstract class SimpleSipCreator extends Thread {
   }
 
   /**
-   * This method must be overridden.
+   * Creates the SIPs in the worker threads and, when all are done, the report.
    */
   @Override
   public void run() {
+    Collection<Sip> toCreate = previews.keySet();
+    long weight = 0;
+    for (Sip preview : toCreate) {
+      long sipWeight = computeWeight(preview);
+      sipsWeight.put(preview, sipWeight);
+      weight += sipWeight;
+    }
+    allSipsWeight = weight;
+    // some name builders number the SIPs, so the names are assigned before the
+    // SIPs are created in parallel
+    for (Sip preview : toCreate) {
+      sipNames.put(preview, createSipName(preview, sipNameBuilder));
+    }
+    exportDate = new Date();
+    startInstant = Instant.now();
+    InventoryReportCreator reportCreator = new InventoryReportCreator(outputPath);
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(toCreate.size(), 1)));
+    try {
+      Map<Sip, Future<?>> futures = new LinkedHashMap<>();
+      for (Sip preview : toCreate) {
+        futures.put(preview, executor.submit(() -> {
+          if (canceled) {
+            return;
+          }
+          SipProgress progress = new SipProgress(preview.getTitle(), sipsWeight.get(preview));
+          currentSipName = progress.name;
+          workerSip.set(progress);
+          sipsInProgress.add(progress);
+          try {
+            Pair pathSIP = createSip(preview);
+            if (pathSIP != null) {
+              if (createReport) {
+                reportLines.put(preview, reportCreator.createLines((Path) pathSIP.getKey(), pathSIP.getValue()));
+              }
+              progress.metrics.setSuccess(true);
+            }
+          } catch (RuntimeException e) {
+            LOGGER.error("Error creating SIP", e);
+            unsuccessful.add(preview);
+            CreationModalProcessing.showError(preview, e);
+          } finally {
+            progress.metrics.startPhase(null);
+            metrics.add(progress.metrics);
+            transferedWeight.add(progress.weight);
+            sipsInProgress.remove(progress);
+            workerSip.remove();
+            if (progress.tempDirectory != null) {
+              deleteDirectory(progress.tempDirectory);
+            }
+          }
+        }));
+      }
+      for (Map.Entry<Sip, Future<?>> future : futures.entrySet()) {
+        try {
+          future.getValue().get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Error creating SIP", e.getCause());
+          unsuccessful.add(future.getKey());
+          CreationModalProcessing.showError(future.getKey(), e);
+        }
+      }
+    } catch (InterruptedException e) {
+      canceled = true;
+    } finally {
+      if (canceled) {
+        executor.shutdownNow();
+      } else {
+        executor.shutdown();
+      }
+      // the metrics, the report and the cleanup need all the workers to end
+      awaitTermination(executor);
+    }
+
+    metrics.end();
+    LOGGER.info("Exported {} files ({} bytes) in {} ms, phase times (ms): {}", metrics.getFiles(),
+      metrics.getBytes(), metrics.getElapsedTime(), metrics.getPhaseTimes());
+    if (ConfigurationManager.getConfigAsBoolean(Constants.CONF_K_SIP_CREATION_METRICS_LOG, false)) {
+      metrics.writeCsv(outputPath.resolve(String.format(Constants.SIP_METRICS_LOG_FILE_FORMAT,
+        new SimpleDateFormat(Constants.DATE_FORMAT_1).format(new Date()))));
+    }
 
+    if (createReport) {
+      List<List<String>> lines = new ArrayList<>();
+      for (Sip preview : toCreate) {
+        lines.addAll(reportLines.getOrDefault(preview, Collections.emptyList()));
+      }
+      createReport(lines);
+    }
+    currentAction = I18n.t(Constants.I18N_DONE);
+  }
+
+  private void awaitTermination(ExecutorService executor) {
+    while (!executor.isTerminated()) {
+      try {
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        canceled = true;
+        executor.shutdownNow();
+      }
+    }
   }
 
   /**
-   * @return The time remaining estimate of the SIP creator.
+   * Creates a SIP. Called from a worker thread, which is also the thread that
+   * must receive the progress callbacks of the SIP being built.
+   *
+   * @param descriptionObject
+   *          The SIP to create
+   * @return A pair with the path of the created SIP and the SIP, or null if it
+   *         couldn't be created
    */
-  public double getTimeRemainingEstimate() {
-    return -1;
+  protected abstract Pair createSip(Sip descriptionObject);
+
+  /**
+   * Estimates the time remaining from the size of the SIPs still to create and
+   * the throughput. The throughput is sampled at most once per second and
+   * smoothed with an exponential moving average, so that the estimate doesn't
+   * jump with each small or big file.
+   *
+   * @return The time remaining estimate of the SIP creator, in milliseconds,
+   *         or -1 if it can't be estimated yet.
+   */
+  public synchronized double getTimeRemainingEstimate() {
+    if (startInstant == null) {
+      return -1;
+    }
+    long now = Duration.between(startInstant, Instant.now()).toMillis();
+    double transfered = getTransferedWeight();
+    if (now - lastSampleTime >= ETA_SAMPLE_INTERVAL) {
+      double throughput = (transfered - lastSampleWeight) / (now - lastSampleTime);
+      smoothedThroughput = smoothedThroughput < 0 ? throughput
+        : ETA_SMOOTHING_FACTOR * throughput + (1 - ETA_SMOOTHING_FACTOR) * smoothedThroughput;
+      lastSampleTime = now;
+      lastSampleWeight = transfered;
+    }
+    if (smoothedThroughput <= 0) {
+      return -1;
+    }
+    return Math.max(0, allSipsWeight - transfered) / smoothedThroughput;
   }
 
-  public void createReport(Map<Path, Object> sips) {
+  public void createReport(List<List<String>> lines) {
     InventoryReportCreator reportCreator = new InventoryReportCreator(outputPath);
-    reportCreator.start(sips);
+    reportCreator.start(lines);
   }
 
   public String createSipName(Sip sip, SIPNameBuilder sipNameBuilder) {
@@ -219,4 +632,44 @@ public abstract class SimpleSipCreator extends Thread {
     return Controller.encodeId(name);
   }
 
+  /**
+   * @param sip
+   *          The SIP
+   * @return The name of the SIP, assigned when the exportation started.
+   */
+  protected String getSipName(Sip sip) {
+    String result = sipNames.get(sip);
+    return result != null ? result : createSipName(sip, sipNameBuilder);
+  }
+
+  /**
+   * The progress of a SIP being created. Only the worker thread creating the
+   * SIP changes it, the other threads only read the name, action and progress.
+   */
+  protected static class SipProgress {
+    protected final String name;
+    protected final ExportMetrics.SipMetrics metrics;
+    // size of the SIP, used to weight its progress
+    protected final long weight;
+    protected volatile String action;
+    // fraction of the SIP already packaged, from 0 to 1
+    protected volatile float progress = 0;
+
+    protected int filesCount = 0;
+    protected int filesAdded = 0;
+    protected int repProcessingSize;
+    protected int countFilesOfZip;
+    protected Path tempDirectory;
+    // the SIP being built and the files written to its package, in order
+    protected SIP sip;
+    protected List<ZipEntryInfo> zipEntries = Collections.emptyList();
+    protected long bytesWritten;
+
+    SipProgress(String name, long weight) {
+      this.name = name;
+      this.weight = weight;
+      this.metrics = new ExportMetrics.SipMetrics(name);
+    }
+  }
+
 }
@@ -42,6 +42,21 @@ public class InventoryReportCreator {
   }
 
   public void start(Map<Path, Object> sips) {
+    List<List<String>> lines = new ArrayList<List<String>>();
+    for (Map.Entry<Path, Object> entry : sips.entrySet()) {
+      lines.addAll(createLines(entry.getKey(), entry.getValue()));
+    }
+    start(lines);
+  }
+
+  /**
+   * Writes the inventory report with lines already created with
+   * {@link #createLines(Path, Object)}.
+   *
+   * @param lines
+   *          The lines of the report, without the headers
+   */
+  public void start(List<List<String>> lines) {
     CSVPrinter csvFilePrinter = null;
     CSVFormat csvFileFormat = CSVFormat.DEFAULT.withRecordSeparator(System.lineSeparator());
     BufferedWriter fileWriter = null;
@@ -64,16 +79,7 @@ public class InventoryReportCreator {
       headers.add(CSV_FIELD_FILE_CHECKSUM);
       headers.add(CSV_FIELD_FILE_SIZE);
       csvFilePrinter.printRecord(headers);
-      for (Map.Entry<Path, Object> entry : sips.entrySet()) {
-        if (entry.getValue() instanceof Bag) {
-          List<List<String>> lines = bagToCSVLines(entry.getKey());
-          csvFilePrinter.printRecords(lines);
-        } else if (entry.getValue() instanceof SIP) {
-          SIP sip = (SIP) entry.getValue();
-          List<List<String>> lines = SIPToCSVLines(entry.getKey(), sip);
-          csvFilePrinter.printRecords(lines);
-        }
-      }
+      csvFilePrinter.printRecords(lines);
     } catch (IOException e) {
       LOGGER.error("Error creating inventory report", e);
     } finally {
@@ -82,15 +88,31 @@ public class InventoryReportCreator {
     }
   }
 
+  /**
+   * Creates the lines of the inventory report of a SIP. Must be called right
+   * after the SIP is built, while the files it was built from still exist.
+   *
+   * @param path
+   *          The path of the created SIP
+   * @param sip
+   *          The created SIP, a {@link Bag} or a {@link SIP}
+   * @return The lines of the report for the files of the SIP
+   */
+  public List<List<String>> createLines(Path path, Object sip) {
+    if (sip instanceof Bag) {
+      return bagToCSVLines(path);
+    } else if (sip instanceof SIP) {
+      return SIPToCSVLines(path, (SIP) sip);
+    }
+    return new ArrayList<List<String>>();
+  }
+
   private List<List<String>> SIPToCSVLines(Path path, SIP sip) {
     List<List<String>> lines = new ArrayList<List<String>>();
     for (ZipEntryInfo entry : sip.getZipEntries().values()) {
       if (!(entry instanceof METSZipEntryInfo)) {
         try {
           List<String> line = new ArrayList<String>();
-          // FIXME 20170310 hsilva: the following will fail for temp. files that
-          // were most certainly deleted before getting to this point of sip
-          // generation
           Long size = Files.size(entry.getFilePath());
           line.add(path.getFileName().toString());
           line.add(entry.getName());
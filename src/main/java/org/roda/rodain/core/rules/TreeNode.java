@@ -1,8 +1,11 @@
 package org.roda.rodain.core.rules;
 
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -10,6 +13,10 @@ import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
 
+import org.roda.rodain.core.source.FileScanCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * @author Andre Pereira apereira@keep.pt
  * @since 05-10-2015.
@@ -19,9 +26,26 @@ import java.util.Set;
  *        a SIP
  *        </p>
  */
-public class TreeNode extends Observable {
+public class TreeNode {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TreeNode.class.getName());
+
   private Path path;
+  // the children, created only when the first one is added, since most nodes
+  // are files
   private Map<String, TreeNode> files;
+  private TreeNode parent;
+  // if the path is a directory, captured when the tree is walked or read from
+  // the FileScanCache the first time it's needed
+  private Boolean directory;
+  // the size of the file, or -1 if it isn't known yet
+  private long fileSize = -1;
+  // the number of paths and the size of the files of the tree that starts in
+  // this node, or -1 if they must be computed again
+  private int pathsCount = -1;
+  private long treeSize = -1;
+  // notifies the observers of the changes of the node and its descendants,
+  // created only when an observer is added
+  private Changes changes;
 
   /**
    * Creates a new TreeNode object.
@@ -31,23 +55,43 @@ public class TreeNode extends Observable {
    */
   public TreeNode(Path path) {
     this.path = path;
-    files = new HashMap<>();
+  }
+
+  /**
+   * Creates a new TreeNode object with the attributes read while walking the
+   * file tree, so that they don't have to be read again.
+   *
+   * @param path
+   *          The path to be associated to the TreeNode.
+   * @param attrs
+   *          The attributes of the path.
+   */
+  public TreeNode(Path path, BasicFileAttributes attrs) {
+    this.path = path;
+    this.directory = attrs.isDirectory();
+    this.fileSize = attrs.isRegularFile() ? attrs.size() : 0;
   }
 
   /**
    * Flattens the TreeNode, i.e., moves all it's child nodes to one level.
    */
   public void flatten() {
+    if (files == null) {
+      return;
+    }
     Map<String, TreeNode> newFiles = new HashMap<>();
-    for (String file : files.keySet()) {
-      if (Files.isDirectory(Paths.get(file))) {
-        files.get(file).flatten(); // flatten the children
-        newFiles.putAll(files.get(file).getOnlyFiles()); // add its files to the
+    for (Map.Entry<String, TreeNode> file : files.entrySet()) {
+      if (file.getValue().isDirectory()) {
+        file.getValue().flatten(); // flatten the children
+        newFiles.putAll(file.getValue().getOnlyFiles()); // add its files to the
         // new Map
       } else
-        newFiles.put(file, files.get(file));
+        newFiles.put(file.getKey(), file.getValue());
     }
     files = newFiles;
+    for (TreeNode tn : files.values()) {
+      tn.parent = this;
+    }
 
     changed();
   }
@@ -58,21 +102,37 @@ public class TreeNode extends Observable {
    */
   public Set<String> getFullTreePaths() {
     Set<String> result = new HashSet<>();
-    result.add(path.toString());
-    for (TreeNode tn : files.values())
-      result.addAll(tn.getFullTreePaths());
+    addFullTreePaths(result);
     return result;
   }
 
+  private void addFullTreePaths(Set<String> result) {
+    Deque<TreeNode> toVisit = new ArrayDeque<>();
+    toVisit.push(this);
+    while (!toVisit.isEmpty()) {
+      TreeNode tn = toVisit.pop();
+      result.add(tn.path.toString());
+      if (tn.files != null) {
+        tn.files.values().forEach(toVisit::push);
+      }
+    }
+  }
+
   /**
    * @return A set with all the paths from the tree that starts in the TreeNode
    *         where this method is called.
    */
   public Set<Path> getFullTreePathsAsPaths() {
     Set<Path> result = new HashSet<>();
-    result.add(path);
-    for (TreeNode tn : files.values())
-      result.addAll(tn.getFullTreePathsAsPaths());
+    Deque<TreeNode> toVisit = new ArrayDeque<>();
+    toVisit.push(this);
+    while (!toVisit.isEmpty()) {
+      TreeNode tn = toVisit.pop();
+      result.add(tn.path);
+      if (tn.files != null) {
+        tn.files.values().forEach(toVisit::push);
+      }
+    }
     return result;
   }
 
@@ -80,7 +140,7 @@ public class TreeNode extends Observable {
    * @return The direct children of the TreeNode.
    */
   public Map<String, TreeNode> getChildren() {
-    return files;
+    return files != null ? files : Collections.emptyMap();
   }
 
   /**
@@ -89,13 +149,76 @@ public class TreeNode extends Observable {
    */
   public Map<String, TreeNode> getOnlyFiles() {
     Map<String, TreeNode> result = new HashMap<>();
-    for (String file : files.keySet()) {
-      if (!Files.isDirectory(Paths.get(file))) // add to result if it's a file
-        result.put(file, files.get(file));
+    for (Map.Entry<String, TreeNode> file : getChildren().entrySet()) {
+      if (!file.getValue().isDirectory()) // add to result if it's a file
+        result.put(file.getKey(), file.getValue());
     }
     return result;
   }
 
+  /**
+   * @return The number of paths of the tree that starts in this node, the same
+   *         as the size of getFullTreePaths(), without creating the set.
+   */
+  public int getFullTreePathsCount() {
+    computeTreeTotals();
+    return pathsCount;
+  }
+
+  /**
+   * @return The size of the files of the tree that starts in this node.
+   */
+  public long getTreeSize() {
+    computeTreeTotals();
+    return treeSize;
+  }
+
+  /**
+   * @return True if the node's path is a directory.
+   */
+  public boolean isDirectory() {
+    if (directory == null) {
+      directory = FileScanCache.isDirectory(path);
+    }
+    return directory;
+  }
+
+  /*
+   * Computes the totals of the tree, reusing the totals of the sub-trees that
+   * didn't change.
+   */
+  private void computeTreeTotals() {
+    if (pathsCount >= 0) {
+      return;
+    }
+    int count = 1;
+    long size = 0;
+    if (files != null && !files.isEmpty()) {
+      for (TreeNode tn : files.values()) {
+        tn.computeTreeTotals();
+        count += tn.pathsCount;
+        size += tn.treeSize;
+      }
+    } else {
+      size = getFileSize();
+    }
+    treeSize = size;
+    pathsCount = count;
+  }
+
+  private long getFileSize() {
+    if (fileSize < 0) {
+      try {
+        BasicFileAttributes attrs = FileScanCache.getAttributes(path);
+        fileSize = attrs.isRegularFile() ? attrs.size() : 0;
+      } catch (IOException e) {
+        LOGGER.debug("Unable to read the size of '{}'", path, e);
+        fileSize = 0;
+      }
+    }
+    return fileSize;
+  }
+
   /**
    * If an item's path is in the selected paths to be ignored, this method
    * returns a set of the item's full tree. Else, calls this method in all its
@@ -107,13 +230,18 @@ public class TreeNode extends Observable {
    */
   public Set<String> ignoreContent(Set<Path> paths) {
     Set<String> result = new HashSet<>();
+    ignoreContent(paths, result);
+    return result;
+  }
+
+  private void ignoreContent(Set<Path> paths, Set<String> result) {
     if (paths.contains(path)) {
       // this item and all its children
-      result.addAll(getFullTreePaths());
-    } else {
+      addFullTreePaths(result);
+    } else if (files != null) {
       Set<Path> toRemove = new HashSet<>();
       for (TreeNode tn : files.values()) {
-        result.addAll(tn.ignoreContent(paths));
+        tn.ignoreContent(paths, result);
         if (paths.contains(tn.path))
           toRemove.add(tn.path);
       }
@@ -122,7 +250,6 @@ public class TreeNode extends Observable {
           remove(p);
       }
     }
-    return result;
   }
 
   /**
@@ -132,7 +259,10 @@ public class TreeNode extends Observable {
    *          The map with the new TreeNodes
    */
   public void addAll(Map<String, TreeNode> map) {
-    files.putAll(map);
+    for (TreeNode tn : map.values()) {
+      tn.parent = this;
+    }
+    getOrCreateFiles().putAll(map);
     changed();
   }
 
@@ -143,7 +273,8 @@ public class TreeNode extends Observable {
    *          The new TreeNode to be added
    */
   public void add(TreeNode node) {
-    files.put(node.getPath().toString(), node);
+    node.parent = this;
+    getOrCreateFiles().put(node.getPath().toString(), node);
     changed();
   }
 
@@ -155,8 +286,7 @@ public class TreeNode extends Observable {
    *          added, the method creates a new TreeNode with this path.
    */
   public void add(Path node) {
-    files.put(node.toString(), new TreeNode(node));
-    changed();
+    add(new TreeNode(node));
   }
 
   /**
@@ -167,8 +297,10 @@ public class TreeNode extends Observable {
    * @return The removed TreeNode
    */
   public TreeNode remove(Path path) {
-    TreeNode result = files.get(path.toString());
-    files.remove(path.toString());
+    TreeNode result = files != null ? files.remove(path.toString()) : null;
+    if (result != null && result.parent == this) {
+      result.parent = null;
+    }
     changed();
     return result;
   }
@@ -184,7 +316,7 @@ public class TreeNode extends Observable {
    * @return A set of the node's children's paths.
    */
   public Set<String> getKeys() {
-    return files.keySet();
+    return getChildren().keySet();
   }
 
   /**
@@ -193,25 +325,56 @@ public class TreeNode extends Observable {
    * @return The TreeNode with the path received as parameter
    */
   public TreeNode get(String key) {
-    return files.get(key);
+    return files != null ? files.get(key) : null;
+  }
+
+  private Map<String, TreeNode> getOrCreateFiles() {
+    if (files == null) {
+      files = new HashMap<>();
+    }
+    return files;
   }
 
+  /*
+   * Notifies the observers of this node and of all its ancestors, which also
+   * observe the changes of their descendants, and discards their totals.
+   */
   private void changed() {
-    setChanged();
-    notifyObservers();
+    for (TreeNode tn = this; tn != null; tn = tn.parent) {
+      tn.pathsCount = -1;
+      tn.treeSize = -1;
+    }
+    for (TreeNode tn = this; tn != null; tn = tn.parent) {
+      if (tn.changes != null) {
+        tn.changes.changed(this);
+      }
+    }
   }
 
   /**
-   * Adds a new observer to the TreeNode and all its children
+   * Adds a new observer to the TreeNode. The observer is notified of the
+   * changes of the TreeNode and all its descendants, with the changed TreeNode
+   * as the argument.
    *
    * @param o
    *          The Observer to be added
    */
-  @Override
   public void addObserver(Observer o) {
-    super.addObserver(o);
-    for (TreeNode tn : files.values()) {
-      tn.addObserver(o);
+    if (changes == null) {
+      changes = new Changes();
+    }
+    changes.addObserver(o);
+  }
+
+  /**
+   * The Observable of the observers of a TreeNode. The nodes don't extend
+   * Observable, so that the nodes without observers, almost all of them, don't
+   * have a list of observers.
+   */
+  public static class Changes extends Observable {
+    private void changed(TreeNode node) {
+      setChanged();
+      notifyObservers(node);
     }
   }
 }
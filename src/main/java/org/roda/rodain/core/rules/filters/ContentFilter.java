@@ -1,9 +1,11 @@
 package org.roda.rodain.core.rules.filters;
 
-import java.io.File;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.roda.rodain.core.Constants.PathState;
 import org.roda.rodain.core.PathCollection;
@@ -15,6 +17,9 @@ import org.roda.rodain.core.PathCollection;
 public class ContentFilter {
   private HashSet<String> ignored;
   private HashSet<String> mapped;
+  // the verdict of the ancestors of the filtered paths, discarded when the
+  // lists change
+  private Map<String, Boolean> directoryVerdicts = new ConcurrentHashMap<>();
 
   /**
    * Creates a new ContentFilter object
@@ -32,6 +37,7 @@ public class ContentFilter {
    */
   public void addIgnored(String st) {
     ignored.add(st);
+    directoryVerdicts.clear();
   }
 
   /**
@@ -42,6 +48,7 @@ public class ContentFilter {
    */
   public void addAllIgnored(Collection col) {
     ignored.addAll(col);
+    directoryVerdicts.clear();
   }
 
   /**
@@ -52,6 +59,7 @@ public class ContentFilter {
    */
   public void addMapped(String st) {
     mapped.add(st);
+    directoryVerdicts.clear();
   }
 
   /**
@@ -62,6 +70,7 @@ public class ContentFilter {
    */
   public void addAllMapped(Collection col) {
     mapped.addAll(col);
+    directoryVerdicts.clear();
   }
 
   /**
@@ -69,7 +78,9 @@ public class ContentFilter {
    * determine if the path should be filtered.
    * <p/>
    * <p>
-   * Additionally, checks if any ancestor of the path is in one of the lists.
+   * Additionally, checks if any ancestor of the path is in one of the lists or
+   * is ignored. The verdict of each directory is kept, so that the files of a
+   * directory only check their own path and reuse the verdict of their parent.
    * </p>
    *
    * @param path
@@ -79,30 +90,30 @@ public class ContentFilter {
    *         otherwise.
    */
   public boolean filter(String path) {
-    boolean result = false;
-    if (ignored.contains(path) || mapped.contains(path)
-      || PathCollection.getState(Paths.get(path)) != PathState.NORMAL
-      || IgnoredFilter.isIgnored(Paths.get(path))) {
-      result = true;
-    } else {
-      int index = 0, end = path.length(), fromIndex = 0;
-      String separator = File.separator;
+    Path p = Paths.get(path);
+    if (ignored.contains(path) || mapped.contains(path) || PathCollection.getState(p) != PathState.NORMAL
+      || IgnoredFilter.isIgnoredEntry(p)) {
+      return true;
+    }
+    Path parent = p.getParent();
+    return parent != null && isFilteredDirectory(parent);
+  }
 
-      while (index < end && !result) { // while we still have string to read and
-        // haven't found a matching path
-        index = path.indexOf(separator, fromIndex); // get the path until the
-        // slash we're checking
-        if (index == -1) {
-          break;
-        } else {
-          String sub = path.substring(0, index);
-          fromIndex = index + 1; // move the starting index for the next
-          // iteration so it's after the slash
-          if (ignored.contains(sub) || mapped.contains(sub) || IgnoredFilter.isIgnored(Paths.get(sub))) {
-            result = true;
-          }
-        }
-      }
+  /*
+   * Checks if a directory, or any of its ancestors, is in any of the lists or
+   * has an ignored name. Its contents aren't checked, since it's the ancestor
+   * of a path being filtered.
+   */
+  private boolean isFilteredDirectory(Path dir) {
+    String key = dir.toString();
+    Boolean result = directoryVerdicts.get(key);
+    if (result == null) {
+      Path fileName = dir.getFileName();
+      Path parent = dir.getParent();
+      result = ignored.contains(key) || mapped.contains(key)
+        || (fileName != null && IgnoredFilter.isIgnoredName(fileName.toString()))
+        || (parent != null && isFilteredDirectory(parent));
+      directoryVerdicts.put(key, result);
     }
     return result;
   }
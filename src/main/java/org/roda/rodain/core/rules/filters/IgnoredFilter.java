@@ -1,16 +1,21 @@
 package org.roda.rodain.core.rules.filters;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.regex.PatternSyntaxException;
 
+import org.roda.rodain.core.source.FileScanCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,8 +26,19 @@ import org.slf4j.LoggerFactory;
 public class IgnoredFilter {
   private static final Logger LOGGER = LoggerFactory.getLogger(IgnoredFilter.class.getName());
 
-  private static Set<String> rules = new HashSet<>();
-  private static Map<String, Pattern> rulesPatterns = new HashMap<>();
+  // the names checked by each rule set are kept up to this number, then the
+  // verdicts are discarded
+  private static final int MAX_CACHED_NAMES = 50000;
+  // matches backreferences, which can't be combined with other rules since
+  // the group numbers change
+  private static final Pattern BACKREFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+  private static volatile RuleSet ruleSet = new RuleSet(Collections.emptySet());
+  private static Map<Path, DirectoryVerdict> directoryVerdicts = new ConcurrentHashMap<>();
+
+  static {
+    FileScanCache.addListingListener(IgnoredFilter::discardVerdicts);
+  }
 
   private IgnoredFilter() {
   }
@@ -33,12 +49,37 @@ public class IgnoredFilter {
    * @param rule
    *          The new ignore rule.
    */
-  public static void addIgnoreRule(String rule) {
-    if (rules.add(rule)) {
-      rulesPatterns.put(rule, Pattern.compile(rule));
+  public static synchronized void addIgnoreRule(String rule) {
+    if (!ruleSet.rules.contains(rule)) {
+      Set<String> rules = new LinkedHashSet<>(ruleSet.rules);
+      rules.add(rule);
+      ruleSet = new RuleSet(rules);
+      directoryVerdicts.clear();
+    }
+  }
+
+  /**
+   * Adds several ignore rules, compiling them only once.
+   * 
+   * @param newRules
+   *          The new ignore rules.
+   */
+  public static synchronized void addIgnoreRules(Collection<String> newRules) {
+    Set<String> rules = new LinkedHashSet<>(ruleSet.rules);
+    if (rules.addAll(newRules)) {
+      ruleSet = new RuleSet(rules);
+      directoryVerdicts.clear();
     }
   }
 
+  /**
+   * Removes all the ignore rules.
+   */
+  public static synchronized void clearIgnoreRules() {
+    ruleSet = new RuleSet(Collections.emptySet());
+    directoryVerdicts.clear();
+  }
+
   /**
    * Checks if the file/directory matches one of the configured filters
    * 
@@ -48,10 +89,11 @@ public class IgnoredFilter {
    */
   public static boolean isIgnored(Path path) {
     boolean result = false;
-    if (!rules.isEmpty()) {
+    RuleSet current = ruleSet;
+    if (!current.isEmpty()) {
       int i = path.getNameCount() - 1;
       for (; i >= 0; i--) {
-        if (isIgnored(path.getName(i).toString())) {
+        if (current.matches(path.getName(i).toString())) {
           result = true;
           break;
         }
@@ -65,47 +107,60 @@ public class IgnoredFilter {
   }
 
   /**
-   * Checks if a value has been ignored by a rule set in the configuration file
-   * of the application.
+   * Checks if the file/directory matches one of the configured filters, like
+   * {@link #isIgnored(Path)}, but only checks the name of the path itself, not
+   * the names of its ancestors. Used when the ancestors were already checked.
    * 
-   * @param value
-   *          The value to be filtered
-   * @return True if the value is ignored, false otherwise.
+   * @param path
+   *          The path to be filtered
+   * @return True if the path matches one filter, false otherwise
    */
-  private static boolean isIgnored(String value) {
+  public static boolean isIgnoredEntry(Path path) {
     boolean result = false;
-    for (String rule : rules) {
-      Pattern p = rulesPatterns.get(rule);
-      Matcher m = p.matcher(value);
-      if (m.matches()) {
-        result = true;
-        break;
-      }
+    RuleSet current = ruleSet;
+    if (!current.isEmpty()) {
+      Path fileName = path.getFileName();
+      result = (fileName != null && current.matches(fileName.toString())) || !containsAtLeastOneNotIgnoredFile(path);
     }
-
     return result;
   }
 
   /**
+   * Checks if the name of a file/directory matches one of the configured
+   * filters.
    * 
-   * @return true if path is not a directory
-   * @return false if path is an empty directory
+   * @param name
+   *          The name of the file/directory
+   * @return True if the name matches one filter, false otherwise
+   */
+  public static boolean isIgnoredName(String name) {
+    RuleSet current = ruleSet;
+    return !current.isEmpty() && current.matches(name);
+  }
+
+  /**
+   * Checks if a path is a file or a directory with at least one file that
+   * isn't ignored, in itself or in its subdirectories.
+   * <p/>
+   * <p>
+   * The verdict of each directory is kept along with its modification time,
+   * so that a directory is only checked again if it was modified. Since the
+   * modification time of a directory doesn't change when its subdirectories
+   * are modified, the verdicts of a directory and its ancestors are also
+   * discarded when the directory is listed again by the scan cache.
+   * </p>
+   *
+   * @param path
+   *          The path to be checked
+   * @return true if path is not a directory or contains at least one file that
+   *         isn't ignored, false if path is an empty directory or only
+   *         contains ignored files
    */
   public static boolean containsAtLeastOneNotIgnoredFile(Path path) {
     boolean res = true;
-    if (Files.isDirectory(path)) {
+    if (FileScanCache.isDirectory(path)) {
       try {
-        if (isDirectoryEmpty(path)) {
-          res = false;
-        } else {
-          // FIXME 20170309 hsilva: the following is very expensive to use
-          // ValidFilesCounter visitor = new ValidFilesCounter();
-          // Files.walkFileTree(path, visitor);
-          // int validFiles = visitor.getValidFiles();
-          // if (validFiles == 0) {
-          // res = false;
-          // }
-        }
+        res = containsNotIgnoredFile(path, ruleSet);
       } catch (Exception e) {
         LOGGER.debug("Error while checking if directory contains at least on valid file: {}", path, e);
       }
@@ -113,21 +168,142 @@ public class IgnoredFilter {
     return res;
   }
 
-  private static boolean isDirectoryEmpty(Path path) {
-    boolean isEmpty = true;
-    Stream<Path> list = null;
-    try {
-      list = Files.list(path);
-      if (list.findFirst().isPresent()) {
-        isEmpty = false;
+  private static boolean containsNotIgnoredFile(Path dir, RuleSet current) throws IOException {
+    FileTime lastModified = FileScanCache.readAttributes(dir).lastModifiedTime();
+    DirectoryVerdict verdict = directoryVerdicts.get(dir);
+    if (verdict != null && verdict.ruleSet == current && verdict.lastModified.equals(lastModified)) {
+      return verdict.result;
+    }
+
+    boolean result = false;
+    List<Path> subdirectories = new ArrayList<>();
+    for (Path child : FileScanCache.listDirectory(dir)) {
+      Path fileName = child.getFileName();
+      if (fileName != null && current.matches(fileName.toString())) {
+        continue;
       }
-    } catch (IOException e) {
-      // do nothing
-    } finally {
-      if (list != null) {
-        list.close();
+      BasicFileAttributes attrs;
+      try {
+        attrs = FileScanCache.getAttributes(child);
+      } catch (IOException e) {
+        LOGGER.debug("Unable to read the attributes of '{}'", child, e);
+        continue;
+      }
+      // links aren't followed, to avoid cycles
+      if (attrs.isDirectory()) {
+        subdirectories.add(child);
+      } else {
+        result = true;
+        break;
       }
     }
-    return isEmpty;
+    if (!result) {
+      for (Path subdirectory : subdirectories) {
+        if (containsNotIgnoredFile(subdirectory, current)) {
+          result = true;
+          break;
+        }
+      }
+    }
+
+    directoryVerdicts.put(dir, new DirectoryVerdict(current, lastModified, result));
+    return result;
+  }
+
+  /*
+   * Discards the verdicts of a directory whose entries were read again and of
+   * all its ancestors, which depend on it.
+   */
+  private static void discardVerdicts(Path dir) {
+    for (Path path = dir; path != null; path = path.getParent()) {
+      directoryVerdicts.remove(path);
+    }
+  }
+
+  /**
+   * An immutable set of ignore rules, shared by all the threads. The rules are
+   * compiled into a single pattern, so each name is matched only once, and the
+   * verdict of the last checked names is kept.
+   */
+  private static class RuleSet {
+    private final Set<String> rules;
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    RuleSet(Set<String> rules) {
+      this.rules = Collections.unmodifiableSet(rules);
+      StringBuilder combined = new StringBuilder();
+      List<Pattern> combinedPatterns = new ArrayList<>();
+      for (String rule : rules) {
+        try {
+          Pattern pattern = Pattern.compile(rule);
+          if (BACKREFERENCE.matcher(rule).find()) {
+            patterns.add(pattern);
+          } else {
+            if (combined.length() > 0) {
+              combined.append('|');
+            }
+            combined.append("(?:").append(rule).append(')');
+            combinedPatterns.add(pattern);
+          }
+        } catch (PatternSyntaxException e) {
+          LOGGER.error("Invalid ignore rule: '{}'", rule, e);
+        }
+      }
+      if (combinedPatterns.size() > 1) {
+        try {
+          patterns.add(0, Pattern.compile(combined.toString()));
+        } catch (PatternSyntaxException e) {
+          // rules that are valid alone can clash when combined, for example
+          // when they define the same named group
+          LOGGER.debug("Unable to combine the ignore rules, matching them one by one", e);
+          patterns.addAll(0, combinedPatterns);
+        }
+      } else {
+        patterns.addAll(0, combinedPatterns);
+      }
+    }
+
+    boolean isEmpty() {
+      return rules.isEmpty();
+    }
+
+    /**
+     * Checks if a value has been ignored by a rule set in the configuration
+     * file of the application.
+     * 
+     * @param value
+     *          The value to be filtered
+     * @return True if the value is ignored, false otherwise.
+     */
+    boolean matches(String value) {
+      Boolean result = verdicts.get(value);
+      if (result == null) {
+        result = false;
+        for (Pattern pattern : patterns) {
+          if (pattern.matcher(value).matches()) {
+            result = true;
+            break;
+          }
+        }
+        if (verdicts.size() >= MAX_CACHED_NAMES) {
+          verdicts.clear();
+        }
+        verdicts.put(value, result);
+      }
+      return result;
+    }
+  }
+
+  private static class DirectoryVerdict {
+    private final RuleSet ruleSet;
+    private final FileTime lastModified;
+    private final boolean result;
+
+    DirectoryVerdict(RuleSet ruleSet, FileTime lastModified, boolean result) {
+      this.ruleSet = ruleSet;
+      this.lastModified = lastModified;
+      this.result = result;
+    }
   }
 }
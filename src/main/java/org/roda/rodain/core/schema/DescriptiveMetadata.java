@@ -1,7 +1,8 @@
 package org.roda.rodain.core.schema;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -9,6 +10,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.validation.Schema;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.net.util.Base64;
@@ -20,6 +24,7 @@ import org.roda.rodain.core.template.TemplateFieldValue;
 import org.roda.rodain.core.template.TemplateUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -33,7 +38,17 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 @JsonIgnoreProperties({"path", "loaded", "values"})
 public class DescriptiveMetadata {
   private static final Logger LOGGER = LoggerFactory.getLogger(DescriptiveMetadata.class.getName());
-  private String id, content, contentEncoding, metadataType;
+  // the XML of each template, shared by all the metadata created from it until
+  // they're changed
+  private static final Map<String, byte[]> templatePrototypes = new ConcurrentHashMap<>();
+
+  private String id, contentEncoding, metadataType;
+  // the content encoded in the content charset. The array is never changed,
+  // only replaced, so it can be shared by several objects
+  private byte[] content;
+  // the plans saved before the charset was serialized have the content
+  // encoded in the platform charset, the new content is encoded in UTF-8
+  private Charset contentCharset = Charset.defaultCharset();
   private List<String> relatedTags = new ArrayList<>();
   private Map<String, Object> additionalProperties = new HashMap<>();
   private TreeSet<TemplateFieldValue> values;
@@ -51,6 +66,7 @@ public class DescriptiveMetadata {
   public DescriptiveMetadata(MetadataOption creatorOption, String templateType, String metadataType,
     String metadataVersion) {
     this.creatorOption = creatorOption;
+    this.contentCharset = StandardCharsets.UTF_8;
     this.templateType = templateType;
     this.metadataVersion = metadataVersion;
     this.contentEncoding = Constants.ENCODING_BASE64;
@@ -66,6 +82,7 @@ public class DescriptiveMetadata {
   public DescriptiveMetadata(MetadataOption creatorOption, Path path, String metadataType, String metadataVersion,
     String templateType) {
     this.creatorOption = creatorOption;
+    this.contentCharset = StandardCharsets.UTF_8;
     this.path = path;
     this.metadataType = metadataType;
     this.contentEncoding = Constants.ENCODING_BASE64;
@@ -136,6 +153,13 @@ public class DescriptiveMetadata {
     this.values = val;
   }
 
+  /**
+   * @return True if the MetadataValue objects were already created.
+   */
+  public boolean hasValues() {
+    return values != null;
+  }
+
   public String getMetadataVersion() {
     return metadataVersion;
   }
@@ -164,12 +188,13 @@ public class DescriptiveMetadata {
   }
 
   /**
-   * Gets the content of the description object metadata.
+   * Gets the content of the description object metadata. Only used to
+   * serialize the metadata.
    *
-   * @return The content
+   * @return The content encoded in Base64
    */
   public String getContent() {
-    return this.content;
+    return content != null ? new String(Base64.encodeBase64(content), StandardCharsets.US_ASCII) : null;
   }
 
   /**
@@ -183,8 +208,7 @@ public class DescriptiveMetadata {
       loadMetadata();
     }
     if (content != null) {
-      byte[] decoded = Base64.decodeBase64(content);
-      return new String(decoded);
+      return new String(content, contentCharset);
     } else {
       return "";
     }
@@ -193,9 +217,10 @@ public class DescriptiveMetadata {
   private void loadMetadata() {
     try {
       if (creatorOption == MetadataOption.TEMPLATE) {
-        if (getTemplateType() != null && getContent() == null) {
+        if (getTemplateType() != null && content == null) {
           String tempContent = ConfigurationManager.getTemplateContent(getTemplateType());
-          setContentDecoded(TemplateUtils.getXMLFromTemplate(tempContent));
+          content = getTemplatePrototype(tempContent);
+          contentCharset = StandardCharsets.UTF_8;
           loaded = true;
         } else {
           loaded = true;
@@ -212,13 +237,39 @@ public class DescriptiveMetadata {
   }
 
   /**
-   * Sets the content of the description object metadata. Set
+   * @param templateContent
+   *          The content of the template
+   * @return True if the content is still the XML generated from the template,
+   *         shared with the other metadata created from it.
+   */
+  public boolean isTemplatePrototype(String templateContent) {
+    if (!loaded) {
+      loadMetadata();
+    }
+    return content != null && content == templatePrototypes.get(templateContent);
+  }
+
+  private static byte[] getTemplatePrototype(String templateContent) {
+    byte[] result = templatePrototypes.get(templateContent);
+    if (result == null) {
+      String xml = TemplateUtils.getXMLFromTemplate(templateContent);
+      if (xml != null) {
+        result = xml.getBytes(StandardCharsets.UTF_8);
+        templatePrototypes.put(templateContent, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Sets the content of the description object metadata. Only used to
+   * deserialize the metadata.
    * 
    * @param content
    *          The content encoded in Base64
    */
   public void setContent(String content) {
-    this.content = content;
+    this.content = content != null ? Base64.decodeBase64(content) : null;
   }
 
   /**
@@ -229,8 +280,35 @@ public class DescriptiveMetadata {
    */
   public void setContentDecoded(String content) {
     if (content != null) {
-      byte[] encoded = Base64.encodeBase64(content.getBytes());
-      this.content = new String(encoded);
+      this.content = content.getBytes(StandardCharsets.UTF_8);
+      this.contentCharset = StandardCharsets.UTF_8;
+    }
+  }
+
+  /**
+   * Gets the charset of the content of the description object metadata. Only
+   * used to serialize the metadata.
+   *
+   * @return The name of the charset
+   */
+  public String getContentCharset() {
+    return contentCharset.name();
+  }
+
+  /**
+   * Sets the charset of the content of the description object metadata. Only
+   * used to deserialize the metadata, the content of the plans that don't have
+   * it is decoded with the platform charset, which was used to encode it.
+   *
+   * @param contentCharset
+   *          The name of the charset
+   */
+  public void setContentCharset(String contentCharset) {
+    try {
+      this.contentCharset = Charset.forName(contentCharset);
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Unknown metadata charset '{}', using the platform charset", contentCharset, e);
+      this.contentCharset = Charset.defaultCharset();
     }
   }
 
@@ -253,15 +331,35 @@ public class DescriptiveMetadata {
     this.contentEncoding = contentEncoding;
   }
 
+  /**
+   * @return The compiled schema of the metadata, or null if there isn't one.
+   * @throws SAXException
+   *           If the schema can't be compiled
+   */
   @JsonIgnore
-  public InputStream getSchema() {
+  public Schema getSchema() throws SAXException {
+    String schemaType = getSchemaType();
+    return schemaType != null ? ConfigurationManager.getSchema(schemaType) : null;
+  }
+
+  /**
+   * @return True if there's a schema associated to the metadata, without
+   *         compiling it.
+   */
+  @JsonIgnore
+  public boolean hasSchema() {
+    String schemaType = getSchemaType();
+    return schemaType != null && ConfigurationManager.hasSchema(schemaType);
+  }
+
+  private String getSchemaType() {
     // FIXME 20170307 hsilva: possible NPE
-    InputStream result = null;
+    String result = null;
     if (templateType != null) {
-      result = ConfigurationManager.getSchemaFile(templateType);
+      result = templateType;
     } else {
       if (path != null)
-        result = ConfigurationManager.getSchemaFile(FilenameUtils.removeExtension(path.getFileName().toString()));
+        result = FilenameUtils.removeExtension(path.getFileName().toString());
     }
     return result;
   }
@@ -300,9 +398,14 @@ public class DescriptiveMetadata {
     DescriptiveMetadata result = new DescriptiveMetadata();
     result.setCreatorOption(creatorOption);
     result.setId(id);
-    result.setContent(content);
+    // the content array is never changed, so it can be shared
+    result.content = content;
+    result.contentCharset = contentCharset;
     result.setContentEncoding(contentEncoding);
-    result.setValues((TreeSet<TemplateFieldValue>) values.clone());
+    // the values are released after exporting metadata that didn't have them
+    if (values != null) {
+      result.setValues((TreeSet<TemplateFieldValue>) values.clone());
+    }
     result.setPath(path);
     result.setMetadataVersion(metadataVersion);
     result.setMetadataType(metadataType);
@@ -313,10 +416,11 @@ public class DescriptiveMetadata {
 
   @Override
   public String toString() {
-    return "DescObjMetadata [id=" + id + ", content=" + content + ", contentEncoding=" + contentEncoding
-      + ", metadataType=" + metadataType + ", additionalProperties=" + additionalProperties + ", values=" + values
-      + ", path=" + path + ", loaded=" + loaded + ", creatorOption=" + creatorOption + ", metadataVersion="
-      + metadataVersion + ", templateType=" + templateType + ", relatedTags=" + relatedTags + "]";
+    return "DescObjMetadata [id=" + id + ", content=" + getContent() + ", contentEncoding=" + contentEncoding
+      + ", contentCharset=" + contentCharset + ", metadataType=" + metadataType + ", additionalProperties="
+      + additionalProperties + ", values=" + values + ", path=" + path + ", loaded=" + loaded + ", creatorOption="
+      + creatorOption + ", metadataVersion=" + metadataVersion + ", templateType=" + templateType + ", relatedTags="
+      + relatedTags + "]";
   }
 
   public void initializeValues() {
@@ -3,7 +3,6 @@ package org.roda.rodain.core.schema;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -21,12 +20,12 @@ import org.roda.rodain.core.Controller;
 import org.roda.rodain.core.I18n;
 import org.roda.rodain.core.Pair;
 import org.roda.rodain.core.template.TemplateFieldValue;
+import org.roda.rodain.core.template.TemplateUtils;
 import org.roda_project.commons_ip.model.IPContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.Template;
 
 /**
@@ -134,59 +133,79 @@ public class Sip extends Observable {
   }
 
   /**
-   * Gets the metadata list of the description object, replacing the fields from
-   * the template.
+   * Gets the metadata list of the description object to export it, replacing
+   * the fields from the template.
    *
    * @return The metadata list
    */
   @JsonIgnore
   public Map<String, String> getMetadataWithReplaces() {
+    return getMetadataToExport(new Date());
+  }
+
+  /**
+   * Gets the metadata list of the description object to export it, replacing
+   * the fields from the template.
+   *
+   * @param exportDate
+   *          The date of the exportation, used by the auto-generated "now"
+   *          fields
+   * @return The metadata list
+   */
+  @JsonIgnore
+  public Map<String, String> getMetadataToExport(Date exportDate) {
     Map<String, String> result = new HashMap<>();
     for (DescriptiveMetadata dom : metadata) {
-      result.put(dom.getId(), getMetadataWithReplaces(dom));
+      result.put(dom.getId(), getMetadataToExport(dom, exportDate));
     }
     return result;
   }
 
+  /**
+   * Gets the content of a metadata of the description object to export it,
+   * replacing the fields from the template. The values of the fields created
+   * only to export the metadata aren't kept, so that the SIPs whose metadata
+   * was never changed or shown don't keep a copy of them.
+   *
+   * <p/>
+   * <p>
+   * Since the values are created again by each call, the auto-generated "now"
+   * fields get the date of the exportation, which must be the same for all the
+   * metadata of an exportation.
+   * </p>
+   *
+   * @param dom
+   *          The metadata
+   * @param exportDate
+   *          The date of the exportation
+   * @return The content of the metadata
+   */
+  @JsonIgnore
+  public String getMetadataToExport(DescriptiveMetadata dom, Date exportDate) {
+    boolean keepValues = dom.hasValues();
+    try {
+      return getMetadataWithReplaces(dom, exportDate);
+    } finally {
+      if (!keepValues) {
+        dom.setValues(null);
+      }
+    }
+  }
+
   @JsonIgnore
   public String getMetadataWithReplaces(DescriptiveMetadata dom) {
+    return getMetadataWithReplaces(dom, new Date());
+  }
+
+  private String getMetadataWithReplaces(DescriptiveMetadata dom, Date now) {
     String content = dom.getContentDecoded();
     String templateContent = ConfigurationManager.getTemplateContent(dom.getTemplateType());
     if (content != null && dom.getCreatorOption() == MetadataOption.TEMPLATE) {
       try {
-        Handlebars handlebars = new Handlebars();
         Map<String, String> data = new HashMap<>();
-        handlebars.registerHelper("field", (o, options) -> options.fn());
-        handlebars.registerHelper("ifCond", (context, options) -> {
-          // the first parameter of ifCond is placed in the context field by the
-          // parser
-          String condition = (context == null) ? Constants.MISC_OR_OP : context.toString();
-          List<Object> values = Arrays.asList(options.params);
-          boolean display;
-          if (condition.equals(Constants.MISC_OR_OP)) {
-            display = false;
-            for (Object value : values) {
-              if (value != null) {
-                display = true;
-                break;
-              }
-            }
-          } else if (condition.equals(Constants.MISC_AND_OP)) {
-            display = true;
-            for (Object value : values) {
-              if (value == null) {
-                display = false;
-                break;
-              }
-            }
-          } else {
-            display = false;
-          }
-          return display ? options.fn() : options.inverse();
-        });
-        Template tmpl = handlebars.compileInline(templateContent);
+        Template tmpl = TemplateUtils.getRenderTemplate(templateContent);
 
-        Set<TemplateFieldValue> values = getMetadataValueMap(dom);
+        Set<TemplateFieldValue> values = getMetadataValueMap(dom, now);
         if (values != null) {
           values.forEach(metadataValue -> {
             if (metadataValue.get("value") != null && metadataValue.get("value") instanceof String) {
@@ -224,6 +243,10 @@ public class Sip extends Observable {
 
   @JsonIgnore
   public Set<TemplateFieldValue> getMetadataValueMap(DescriptiveMetadata dom) {
+    return getMetadataValueMap(dom, new Date());
+  }
+
+  private Set<TemplateFieldValue> getMetadataValueMap(DescriptiveMetadata dom, Date now) {
     String content = ConfigurationManager.getTemplateContent(dom.getTemplateType());
     if (dom.getValues() == null) {
       dom.initializeValues();
@@ -239,7 +262,7 @@ public class Sip extends Observable {
               metadataValue.set("value", title);
               break;
             case "now":
-              metadataValue.set("value", new SimpleDateFormat(Constants.DATE_FORMAT_4).format(new Date()));
+              metadataValue.set("value", new SimpleDateFormat(Constants.DATE_FORMAT_4).format(now));
               break;
             case "id":
               metadataValue.set("value", id);
@@ -3,9 +3,11 @@ package org.roda.rodain.core.sip;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
@@ -61,11 +63,13 @@ public class SipPreview extends Sip implements Observer {
     }
 
     // set paths as mapped
+    Map<Path, PathState> mappedPaths = new HashMap<>();
     for (SipRepresentation sr : representations) {
       for (TreeNode tn : sr.getFiles()) {
-        PathCollection.addPath(tn.getPath(), PathState.MAPPED);
+        mappedPaths.put(tn.getPath(), PathState.MAPPED);
       }
     }
+    PathCollection.addPaths(mappedPaths);
   }
 
   /**
@@ -134,7 +138,7 @@ public class SipPreview extends Sip implements Observer {
     // prepare
     for (SipRepresentation sr : representations) {
       for (TreeNode tn : sr.getFiles()) {
-        paths += tn.getFullTreePaths().size();
+        paths += tn.getFullTreePathsCount();
       }
     }
     // remove
@@ -174,7 +178,7 @@ public class SipPreview extends Sip implements Observer {
    */
   @Override
   public void update(Observable o, Object arg) {
-    if (o instanceof TreeNode) {
+    if (o instanceof TreeNode.Changes) {
       contentModified = true;
       setChanged();
       notifyObservers();
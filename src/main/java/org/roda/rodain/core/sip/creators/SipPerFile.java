@@ -1,15 +1,14 @@
 package org.roda.rodain.core.sip.creators;
 
-import java.io.IOException;
-import java.nio.file.AccessDeniedException;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.roda.rodain.core.Constants;
@@ -29,6 +28,7 @@ public class SipPerFile extends SipPreviewCreator {
   private static final Logger LOGGER = LoggerFactory.getLogger(SipPerFile.class.getName());
   private static final int UPDATEFREQUENCY = 500; // in milliseconds
   private long lastUIUpdate = 0;
+  private List<Path> visitedDirectories = new ArrayList<>();
 
   /**
    * Creates a new SipPreviewCreator where there's a new SIP created for each
@@ -50,51 +50,66 @@ public class SipPerFile extends SipPreviewCreator {
     super(id, filters, metadataOption, metadataType, metadataPath, templateType, metadataVersion);
   }
 
+  /**
+   * Sets the starting path of this TreeVisitor and adds it to the
+   * PathCollection if it isn't filtered.
+   *
+   * @param path
+   *          The starting path of the TreeVisitor.
+   */
   @Override
   public void setStartPath(String path) {
-    try {
-      Files.walkFileTree(Paths.get(path), new SimpleFileVisitor<Path>() {
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-          if (!filter(file))
-            PathCollection.simpleAddPath(file);
-          return isTerminated();
-        }
-
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-          if (!filter(dir))
-            PathCollection.simpleAddPath(dir);
-          return isTerminated();
-        }
-      });
-    } catch (AccessDeniedException e) {
-      LOGGER.info("Access denied to file", e);
-    } catch (IOException e) {
-      LOGGER.error("Error walking the file tree", e);
-    }
+    super.setStartPath(path);
+    Path startPath = Paths.get(path);
+    if (!filter(startPath))
+      PathCollection.simpleAddPath(startPath);
   }
 
-  private FileVisitResult isTerminated() {
-    // terminate if the thread has been interrupted
-    if (Thread.interrupted() || cancelled) {
-      return FileVisitResult.TERMINATE;
+  /**
+   * Adds the entries of the directory that aren't filtered to the
+   * PathCollection before any of them is mapped, otherwise mapping the first
+   * entries would set the directory as MAPPED and the remaining would be
+   * filtered.
+   *
+   * @param path
+   *          The path of the directory.
+   * @param entries
+   *          The paths of the entries of the directory.
+   */
+  @Override
+  public void visitDirectoryEntries(Path path, List<Path> entries) {
+    for (Path entry : entries) {
+      if (!filter(entry))
+        PathCollection.simpleAddPath(entry);
     }
-    return FileVisitResult.CONTINUE;
   }
 
   /**
-   * This method is empty in this class, but it's defined because of the
-   * TreeVisitor interface.
+   * Keeps the directory so that it can be mapped when the visit ends.
    *
    * @param path
    *          The path of the directory.
    */
   @Override
   public void postVisitDirectory(Path path) {
-    if (PathCollection.getState(path) == PathState.NORMAL) {
-      PathCollection.addPath(path, PathState.MAPPED);
+    visitedDirectories.add(path);
+  }
+
+  /**
+   * Maps all the visited directories that are still NORMAL in a single
+   * transaction and notifies the observers that the visit has ended.
+   */
+  @Override
+  public void end() {
+    Map<Path, PathState> toMap = new HashMap<>();
+    for (Path dir : visitedDirectories) {
+      if (PathCollection.getState(dir) == PathState.NORMAL) {
+        toMap.put(dir, PathState.MAPPED);
+      }
     }
+    PathCollection.addPaths(toMap);
+    visitedDirectories.clear();
+    super.end();
   }
 
   @Override
@@ -127,7 +142,7 @@ public class SipPerFile extends SipPreviewCreator {
       return;
     }
 
-    TreeNode node = new TreeNode(path);
+    TreeNode node = new TreeNode(path, attrs);
     createSip(path, node);
 
     long now = System.currentTimeMillis();
@@ -31,6 +31,7 @@ import org.roda.rodain.core.rules.filters.ContentFilter;
 import org.roda.rodain.core.schema.DescriptiveMetadata;
 import org.roda.rodain.core.sip.SipPreview;
 import org.roda.rodain.core.sip.SipRepresentation;
+import org.roda.rodain.core.source.FileScanCache;
 import org.roda.rodain.core.utils.TreeVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -245,11 +246,11 @@ public class SipPreviewCreator extends Observable implements TreeVisitor {
     // in that case we will jump the folder and add the files to the root of the
     // representation
 
-    if (Files.isDirectory(node.getPath())) {
+    if (FileScanCache.isDirectory(node.getPath())) {
       onlyFiles = true;
       if (!jumpBaseFolder) {
         for (String pt : node.getKeys()) {
-          if (Files.isDirectory(Paths.get(pt))) {
+          if (FileScanCache.isDirectory(Paths.get(pt))) {
             onlyFiles = false;
             break;
           }
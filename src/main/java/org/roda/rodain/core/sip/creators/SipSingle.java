@@ -53,7 +53,7 @@ public class SipSingle extends SipPreviewCreator {
   public void preVisitDirectory(Path path, BasicFileAttributes attrs) {
     if (filter(path) || cancelled)
       return;
-    TreeNode newNode = new TreeNode(path);
+    TreeNode newNode = new TreeNode(path, attrs);
     nodes.add(newNode);
   }
 
@@ -91,9 +91,9 @@ public class SipSingle extends SipPreviewCreator {
       return;
     }
     if (nodes.isEmpty())
-      files.add(new TreeNode(path));
+      files.add(new TreeNode(path, attrs));
     else
-      nodes.peekLast().add(path);
+      nodes.peekLast().add(new TreeNode(path, attrs));
   }
 
   /**
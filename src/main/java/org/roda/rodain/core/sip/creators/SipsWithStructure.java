@@ -1,17 +1,13 @@
 package org.roda.rodain.core.sip.creators;
 
-import java.io.IOException;
-import java.nio.file.AccessDeniedException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,6 +20,7 @@ import org.roda.rodain.core.rules.TreeNode;
 import org.roda.rodain.core.rules.filters.ContentFilter;
 import org.roda.rodain.core.schema.DescriptiveMetadata;
 import org.roda.rodain.core.schema.Sip;
+import org.roda.rodain.core.source.FileScanCache;
 import org.roda.rodain.core.sip.PseudoDescriptionObject;
 import org.roda.rodain.core.sip.PseudoItem;
 import org.roda.rodain.core.sip.PseudoSIP;
@@ -85,27 +82,31 @@ public class SipsWithStructure extends SipPreviewCreator {
     folders.add(newFolder);
   }
 
+  /**
+   * Sets the starting path of this TreeVisitor and adds it to the
+   * PathCollection.
+   *
+   * @param path
+   *          The starting path of the TreeVisitor.
+   */
   @Override
   public void setStartPath(String path) {
-    try {
-      Files.walkFileTree(Paths.get(path), new SimpleFileVisitor<Path>() {
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-          PathCollection.simpleAddPath(file);
-          return isTerminated();
-        }
+    super.setStartPath(path);
+    PathCollection.simpleAddPath(Paths.get(path));
+  }
 
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-          PathCollection.simpleAddPath(dir);
-          return isTerminated();
-        }
-      });
-    } catch (AccessDeniedException e) {
-      LOGGER.info("Access denied to file", e);
-    } catch (IOException e) {
-      LOGGER.error("Error walking the file tree", e);
-    }
+  /**
+   * Adds the entries of the directory to the PathCollection before any of them
+   * is visited.
+   *
+   * @param path
+   *          The path of the directory.
+   * @param entries
+   *          The paths of the entries of the directory.
+   */
+  @Override
+  public void visitDirectoryEntries(Path path, List<Path> entries) {
+    entries.forEach(PathCollection::simpleAddPath);
   }
 
   /**
@@ -231,8 +232,9 @@ public class SipsWithStructure extends SipPreviewCreator {
 
     // Map the paths of the description objects only AFTER the SIPs are created
     // to avoid unwanted filtering
-    descObjs
-      .forEach(pseudoDescriptionObject -> PathCollection.addPath(pseudoDescriptionObject.getPath(), PathState.MAPPED));
+    Map<Path, PathState> descObjsPaths = new HashMap<>();
+    descObjs.forEach(pseudoDescriptionObject -> descObjsPaths.put(pseudoDescriptionObject.getPath(), PathState.MAPPED));
+    PathCollection.addPaths(descObjsPaths);
     setChanged();
     notifyObservers(Constants.EVENT_FINISHED);
   }
@@ -259,14 +261,6 @@ public class SipsWithStructure extends SipPreviewCreator {
     return sipPreviewMap;
   }
 
-  private FileVisitResult isTerminated() {
-    // terminate if the thread has been interrupted
-    if (Thread.interrupted() || cancelled) {
-      return FileVisitResult.TERMINATE;
-    }
-    return FileVisitResult.CONTINUE;
-  }
-
   class Folder {
     private Path path;
     private Set<Path> files, folders;
@@ -290,7 +284,7 @@ public class SipsWithStructure extends SipPreviewCreator {
     }
 
     public void addItem(Path path) {
-      if (Files.isDirectory(path)) {
+      if (FileScanCache.isDirectory(path)) {
         folders.add(path);
       } else
         files.add(path);
@@ -0,0 +1,491 @@
+package org.roda.rodain.core.source;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of the file system scans, shared by everything that walks the source
+ * folders (the file explorer, the directory size computation, the rules and
+ * the SIP content creation), so that the same folder isn't listed and its
+ * files aren't read again every time.
+ * <p/>
+ * <p>
+ * For each path the cache keeps its attributes (size, last modified time and
+ * type) and, for the directories that were listed, their entries. A listing is
+ * only reused while the last modified time of the directory is the same as
+ * when it was listed, which is checked with a single read of the directory's
+ * attributes.
+ * </p>
+ * <p>
+ * The attributes are read without following symbolic links, as when walking a
+ * file tree.
+ * </p>
+ * <p>
+ * The number of cached attributes and listings is bounded. When a bound is
+ * reached, a part of the entries is discarded and will be read again from the
+ * file system if needed.
+ * </p>
+ * <p>
+ * The listings can be saved to a file and loaded in the next session, so that
+ * reopening a large source folder doesn't need to list it again. Since the
+ * listings are validated when used, the loaded ones that are out of date are
+ * discarded lazily, as the folders are walked. The loaded attributes are read
+ * again from the file system the first time they're used, since a file can be
+ * changed without changing its directory. Only the most recently used listings
+ * are saved.
+ * </p>
+ *
+ * @since 18-10-2026.
+ */
+public class FileScanCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileScanCache.class.getName());
+  private static final int FILE_VERSION = 2;
+  private static final int MAX_ATTRIBUTES = 500000;
+  private static final int MAX_LISTINGS = 50000;
+  // the saved listings are the most recently used ones, up to this number of
+  // entries, and not older than this
+  private static final int MAX_SAVED_ENTRIES = 200000;
+  private static final long MAX_SAVED_AGE = TimeUnit.DAYS.toMillis(30);
+  private static Map<Path, CachedAttributes> attributes = new ConcurrentHashMap<>();
+  private static Map<Path, Listing> listings = new ConcurrentHashMap<>();
+  private static final List<Consumer<Path>> listingListeners = new CopyOnWriteArrayList<>();
+
+  private FileScanCache() {
+  }
+
+  /**
+   * Gets the attributes of a path, reading them from the file system only if
+   * they aren't in the cache.
+   *
+   * @param path
+   *          The path
+   * @return The attributes of the path
+   * @throws IOException
+   *           If the attributes can't be read
+   */
+  public static BasicFileAttributes getAttributes(Path path) throws IOException {
+    CachedAttributes result = attributes.get(path);
+    if (result == null || result.loaded) {
+      return readAttributes(path);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the attributes of a path from the cache or, if they aren't there, from
+   * the file system without adding them to the cache. Used for the paths that
+   * won't be needed again, like the files being exported.
+   *
+   * @param path
+   *          The path
+   * @return The attributes of the path
+   * @throws IOException
+   *           If the attributes can't be read
+   */
+  public static BasicFileAttributes peekAttributes(Path path) throws IOException {
+    CachedAttributes result = attributes.get(path);
+    if (result == null) {
+      return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } else if (result.loaded) {
+      return readAttributes(path);
+    }
+    return result;
+  }
+
+  /**
+   * Works as {@link Files#isDirectory(Path, LinkOption...)}, but uses the
+   * cached attributes when possible.
+   *
+   * @param path
+   *          The path
+   * @return True if the path is a directory (or a link to one), false
+   *         otherwise or if the attributes can't be read.
+   */
+  public static boolean isDirectory(Path path) {
+    try {
+      BasicFileAttributes attrs = getAttributes(path);
+      return attrs.isDirectory() || (attrs.isSymbolicLink() && Files.isDirectory(path));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Lists the entries of a directory, reading the attributes of each one. If
+   * the directory was already listed and hasn't been modified since, the
+   * cached listing is returned.
+   *
+   * @param dir
+   *          The path of the directory
+   * @return The paths of the entries of the directory
+   * @throws IOException
+   *           If the directory can't be listed
+   */
+  public static List<Path> listDirectory(Path dir) throws IOException {
+    FileTime lastModified = readAttributes(dir).lastModifiedTime();
+    List<Path> cached = getValidListing(dir, lastModified);
+    if (cached != null) {
+      return cached;
+    }
+
+    List<Path> children = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path child : stream) {
+        try {
+          readAttributes(child);
+        } catch (IOException e) {
+          LOGGER.debug("Unable to read the attributes of '{}'", child, e);
+        }
+        children.add(child);
+      }
+    } catch (DirectoryIteratorException e) {
+      throw e.getCause();
+    }
+    putListing(dir, lastModified, children);
+    return Collections.unmodifiableList(children);
+  }
+
+  /**
+   * Gets the cached listing of a directory, if it's still valid.
+   *
+   * @param dir
+   *          The path of the directory
+   * @return The paths of the entries of the directory, or null if the
+   *         directory hasn't been listed or was modified after being listed.
+   */
+  public static List<Path> getListing(Path dir) {
+    try {
+      return getValidListing(dir, readAttributes(dir).lastModifiedTime());
+    } catch (IOException e) {
+      invalidate(dir);
+      return null;
+    }
+  }
+
+  private static List<Path> getValidListing(Path dir, FileTime lastModified) {
+    Listing listing = listings.get(dir);
+    if (listing == null) {
+      return null;
+    }
+    if (!listing.lastModified.equals(lastModified)) {
+      listings.remove(dir);
+      return null;
+    }
+    listing.lastUsed = System.currentTimeMillis();
+    return listing.children;
+  }
+
+  /**
+   * Adds the complete listing of a directory to the cache.
+   *
+   * @param dir
+   *          The path of the directory
+   * @param lastModified
+   *          The last modified time of the directory before it was listed
+   * @param children
+   *          The paths of all the entries of the directory
+   */
+  public static void putListing(Path dir, FileTime lastModified, List<Path> children) {
+    Listing previous = listings.put(dir, new Listing(lastModified,
+      Collections.unmodifiableList(new ArrayList<>(children)), System.currentTimeMillis()));
+    evictIfFull(listings, MAX_LISTINGS);
+    if (previous == null || !previous.lastModified.equals(lastModified)) {
+      notifyListed(dir);
+    }
+  }
+
+  /**
+   * Adds a listener that is notified with the path of each directory whose
+   * entries are read from the file system, because it wasn't listed before or
+   * was modified since it was listed. Used to discard the information derived
+   * from the entries of the directory and its ancestors.
+   *
+   * @param listener
+   *          The listener
+   */
+  public static void addListingListener(Consumer<Path> listener) {
+    listingListeners.add(listener);
+  }
+
+  private static void notifyListed(Path dir) {
+    for (Consumer<Path> listener : listingListeners) {
+      listener.accept(dir);
+    }
+  }
+
+  /**
+   * Reads the attributes of a path from the file system and caches them.
+   *
+   * @param path
+   *          The path
+   * @return The attributes of the path
+   * @throws IOException
+   *           If the attributes can't be read
+   */
+  public static BasicFileAttributes readAttributes(Path path) throws IOException {
+    try {
+      CachedAttributes result = new CachedAttributes(
+        Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+      attributes.put(path, result);
+      evictIfFull(attributes, MAX_ATTRIBUTES);
+      return result;
+    } catch (IOException e) {
+      attributes.remove(path);
+      throw e;
+    }
+  }
+
+  /*
+   * Discards a quarter of the entries of a map when it has more entries than
+   * the maximum. The discarded entries are the first ones of the iteration
+   * order, which is as good as any other choice for a hash map.
+   */
+  private static <K, V> void evictIfFull(Map<K, V> map, int max) {
+    if (map.size() > max) {
+      Iterator<K> iterator = map.keySet().iterator();
+      for (int i = max / 4; i > 0 && iterator.hasNext(); i--) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes a path and all the cached information of its descendants.
+   *
+   * @param path
+   *          The path
+   */
+  public static void invalidate(Path path) {
+    attributes.keySet().removeIf(p -> p.startsWith(path));
+    listings.keySet().removeIf(p -> p.startsWith(path));
+    notifyListed(path);
+  }
+
+  /**
+   * Removes everything from the cache.
+   */
+  public static void clear() {
+    attributes.clear();
+    listings.clear();
+  }
+
+  /**
+   * Saves the cached listings, and the attributes of their entries, to a file.
+   * The listings are saved with the names of the entries, not their full
+   * paths, to keep the file small.
+   * <p/>
+   * <p>
+   * Only the listings used in the last days are saved, the most recently used
+   * first, up to a maximum number of entries.
+   * </p>
+   *
+   * @param file
+   *          The path of the file
+   */
+  public static void save(Path file) {
+    long minLastUsed = System.currentTimeMillis() - MAX_SAVED_AGE;
+    List<Map.Entry<Path, Listing>> toSave = new ArrayList<>();
+    for (Map.Entry<Path, Listing> entry : listings.entrySet()) {
+      if (entry.getValue().lastUsed >= minLastUsed) {
+        toSave.add(entry);
+      }
+    }
+    toSave.sort((e1, e2) -> Long.compare(e2.getValue().lastUsed, e1.getValue().lastUsed));
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(FILE_VERSION);
+      int savedEntries = 0;
+      for (Map.Entry<Path, Listing> entry : toSave) {
+        Listing listing = entry.getValue();
+        savedEntries += listing.children.size();
+        if (savedEntries > MAX_SAVED_ENTRIES) {
+          break;
+        }
+        out.writeBoolean(true);
+        out.writeUTF(entry.getKey().toString());
+        out.writeLong(listing.lastModified.to(TimeUnit.NANOSECONDS));
+        out.writeLong(listing.lastUsed);
+        out.writeInt(listing.children.size());
+        for (Path child : listing.children) {
+          out.writeUTF(child.getFileName().toString());
+          CachedAttributes attrs = attributes.get(child);
+          if (attrs == null) {
+            out.writeByte(0);
+          } else {
+            out.writeByte(attrs.type);
+            out.writeLong(attrs.size);
+            out.writeLong(attrs.lastModified);
+          }
+        }
+      }
+      out.writeBoolean(false);
+    } catch (IOException e) {
+      LOGGER.error("Error saving the file scan cache to '{}'", file, e);
+    }
+  }
+
+  /**
+   * Loads the listings saved by {@link #save(Path)} into the cache. Nothing is
+   * loaded if the file doesn't exist or can't be read.
+   *
+   * @param file
+   *          The path of the file
+   */
+  public static void load(Path file) {
+    if (!Files.exists(file)) {
+      return;
+    }
+    Map<Path, CachedAttributes> loadedAttributes = new HashMap<>();
+    Map<Path, Listing> loadedListings = new HashMap<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != FILE_VERSION) {
+        LOGGER.info("Ignoring the file scan cache '{}', it was saved by another version", file);
+        return;
+      }
+      while (in.readBoolean()) {
+        Path dir = Paths.get(in.readUTF());
+        FileTime lastModified = FileTime.from(in.readLong(), TimeUnit.NANOSECONDS);
+        long lastUsed = in.readLong();
+        int count = in.readInt();
+        List<Path> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          Path child = dir.resolve(in.readUTF());
+          byte type = in.readByte();
+          if (type != 0) {
+            loadedAttributes.put(child, new CachedAttributes(in.readLong(), in.readLong(), type, true));
+          }
+          children.add(child);
+        }
+        loadedListings.put(dir, new Listing(lastModified, Collections.unmodifiableList(children), lastUsed));
+      }
+    } catch (IOException | InvalidPathException e) {
+      LOGGER.warn("Error loading the file scan cache from '{}'", file, e);
+      return;
+    }
+    // what has been scanned in this session is more recent than the file
+    loadedAttributes.forEach(attributes::putIfAbsent);
+    loadedListings.forEach(listings::putIfAbsent);
+    evictIfFull(attributes, MAX_ATTRIBUTES);
+    evictIfFull(listings, MAX_LISTINGS);
+  }
+
+  private static class Listing {
+    private final FileTime lastModified;
+    private final List<Path> children;
+    private volatile long lastUsed;
+
+    Listing(FileTime lastModified, List<Path> children, long lastUsed) {
+      this.lastModified = lastModified;
+      this.children = children;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  /**
+   * The subset of the attributes used by the application, to keep the cache
+   * small. The creation and last access times aren't kept, the last modified
+   * time is used in their place.
+   */
+  private static class CachedAttributes implements BasicFileAttributes {
+    private static final byte DIRECTORY = 1, REGULAR_FILE = 2, SYMBOLIC_LINK = 4, OTHER = 8;
+    private final long size;
+    private final long lastModified;
+    private final byte type;
+    // loaded from the file of a previous session, must be read again
+    private final boolean loaded;
+
+    CachedAttributes(BasicFileAttributes attrs) {
+      this(attrs.size(), attrs.lastModifiedTime().toMillis(), typeOf(attrs), false);
+    }
+
+    CachedAttributes(long size, long lastModified, byte type, boolean loaded) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.type = type;
+      this.loaded = loaded;
+    }
+
+    private static byte typeOf(BasicFileAttributes attrs) {
+      if (attrs.isDirectory()) {
+        return DIRECTORY;
+      } else if (attrs.isRegularFile()) {
+        return REGULAR_FILE;
+      } else if (attrs.isSymbolicLink()) {
+        return SYMBOLIC_LINK;
+      } else {
+        return OTHER;
+      }
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+      return FileTime.fromMillis(lastModified);
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return type == REGULAR_FILE;
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return type == DIRECTORY;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return type == SYMBOLIC_LINK;
+    }
+
+    @Override
+    public boolean isOther() {
+      return type == OTHER;
+    }
+
+    @Override
+    public long size() {
+      return size;
+    }
+
+    @Override
+    public Object fileKey() {
+      return null;
+    }
+  }
+}
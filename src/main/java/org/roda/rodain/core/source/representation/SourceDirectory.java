@@ -5,10 +5,14 @@ import java.nio.file.AccessDeniedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.roda.rodain.core.source.FileScanCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +28,10 @@ public class SourceDirectory implements SourceItem {
   private TreeMap<String, SourceItem> children;
   private DirectoryStream<Path> directoryStream;
   private Iterator<Path> iterator;
+  // the entries read from the directory stream, to be added to the scan cache
+  // when the stream is exhausted
+  private List<Path> listed;
+  private FileTime listedModifiedTime;
   private boolean showFiles;
 
   /**
@@ -78,7 +86,7 @@ public class SourceDirectory implements SourceItem {
    *         directory.
    */
   public SourceDirectory getChildDirectory(Path p) {
-    if (Files.isDirectory(p))
+    if (FileScanCache.isDirectory(p))
       return (SourceDirectory) children.get(p.toString());
     return null;
   }
@@ -115,12 +123,21 @@ public class SourceDirectory implements SourceItem {
   }
 
   private void startDirectoryStream() {
-    if (directoryStream != null)
+    if (iterator != null)
       return;
 
+    // no need to read the directory if it has already been scanned
+    List<Path> cached = FileScanCache.getListing(path);
+    if (cached != null) {
+      iterator = cached.iterator();
+      return;
+    }
+
     try {
+      listedModifiedTime = FileScanCache.readAttributes(path).lastModifiedTime();
       directoryStream = Files.newDirectoryStream(path);
       iterator = directoryStream.iterator();
+      listed = new ArrayList<>();
     } catch (AccessDeniedException e) {
       LOGGER.info("No access to file", e);
     } catch (IOException e) {
@@ -149,7 +166,9 @@ public class SourceDirectory implements SourceItem {
       itemsToLoad += LOADING_SIZE;
       while (iterator.hasNext() && (childrenSize + loaded < itemsToLoad)) {
         Path file = iterator.next();
-        if (!showFiles && !Files.isDirectory(file))
+        if (listed != null)
+          listed.add(file);
+        if (!showFiles && !FileScanCache.isDirectory(file))
           continue;
         SourceItem added = loadChild(file);
         result.put(file.toString(), added);
@@ -157,15 +176,20 @@ public class SourceDirectory implements SourceItem {
       }
       // we can close the directory stream if there's no more files to load in
       // the iterator
-      if (!iterator.hasNext())
+      if (!iterator.hasNext()) {
         closeDirectoryStream();
+        if (listed != null) {
+          FileScanCache.putListing(path, listedModifiedTime, listed);
+          listed = null;
+        }
+      }
     }
     return result;
   }
 
   public SourceItem loadChild(Path file) {
     SourceItem item;
-    if (Files.isDirectory(file)) {
+    if (FileScanCache.isDirectory(file)) {
       item = new SourceDirectory(file, showFiles);
       addChild(file, item);
 
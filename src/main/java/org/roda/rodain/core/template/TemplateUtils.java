@@ -7,8 +7,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.transform.stream.StreamSource;
 
@@ -18,12 +20,16 @@ import org.roda.rodain.core.schema.DescriptiveMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.jknack.handlebars.Context;
 import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.Options;
 import com.github.jknack.handlebars.Template;
 
 import net.sf.saxon.s9api.DocumentBuilder;
 import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XPathExecutable;
 import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XdmItem;
 import net.sf.saxon.s9api.XdmNode;
@@ -35,177 +41,249 @@ import net.sf.saxon.s9api.XdmValue;
  */
 public class TemplateUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(TemplateUtils.class.getName());
+  private static final String TEMPLATE_FIELDS_DATA = "rodainTemplateFields";
+
+  // the templates are compiled once for each template content. The helpers are
+  // registered once, so the compiled templates can be applied concurrently
+  private static final Handlebars renderHandlebars = createRenderHandlebars();
+  private static final Handlebars fieldsHandlebars = createFieldsHandlebars();
+  private static final Map<String, Template> renderTemplates = new ConcurrentHashMap<>();
+  private static final Map<String, Template> fieldsTemplates = new ConcurrentHashMap<>();
+  private static final Map<String, TreeSet<TemplateFieldValue>> fieldDefinitions = new ConcurrentHashMap<>();
+  // the fields of each template with the values of the XML generated from it,
+  // shared by all the metadata that wasn't changed
+  private static final Map<String, TreeSet<TemplateFieldValue>> prototypeFields = new ConcurrentHashMap<>();
+
+  // the Saxon processor and the compiled XPath expressions are thread-safe, so
+  // they're shared
+  private static final Processor processor = new Processor(false);
+  private static final XPathCompiler xpathCompiler = processor.newXPathCompiler();
+  private static final Map<String, XPathExecutable> xpaths = new ConcurrentHashMap<>();
 
   public static TreeSet<TemplateFieldValue> getTemplateFields(DescriptiveMetadata dom) {
     TreeSet<TemplateFieldValue> fields = new TreeSet<>();
-    String content = dom.getContentDecoded();
     String templateContent = dom.getTemplateType() != null
       ? ConfigurationManager.getTemplateContent(dom.getTemplateType()) : null;
     if (templateContent != null) {
-      fields = processTemplate(templateContent);
-      if (fields != null) {
-        for (TemplateFieldValue field : fields) {
-          String xpathRaw = (String) field.get("xpath");
-          if (xpathRaw != null && xpathRaw.length() > 0) {
-            String[] xpaths = xpathRaw.split("##%##");
-            String value;
-            List<String> allValues = new ArrayList<>();
-            for (String xpath : xpaths) {
-              allValues.addAll(applyXpath(content, xpath));
-            }
-            // if any of the values is different, concatenate all values in a
-            // string, otherwise return the value
-            boolean allEqual = allValues.stream().allMatch(s -> s.trim().equals(allValues.get(0).trim()));
-            if (allEqual && !allValues.isEmpty()) {
-              value = allValues.get(0);
-            } else {
-              value = String.join(" / ", allValues);
-            }
-            field.set("value", value.trim());
+      if (dom.isTemplatePrototype(templateContent)) {
+        // the metadata wasn't changed, so its values are the ones of the
+        // template and there's no need to parse it
+        TreeSet<TemplateFieldValue> prototype = prototypeFields.get(templateContent);
+        if (prototype == null) {
+          prototype = getFieldValues(templateContent, getXMLFromTemplate(templateContent));
+          prototypeFields.put(templateContent, prototype);
+        }
+        fields = copyFields(prototype);
+      } else {
+        fields = getFieldValues(templateContent, dom.getContentDecoded());
+      }
+    }
+    return fields;
+  }
+
+  private static TreeSet<TemplateFieldValue> getFieldValues(String templateContent, String content) {
+    TreeSet<TemplateFieldValue> fields = getTemplateFieldDefinitions(templateContent);
+    if (fields != null) {
+      // the document is parsed once for all the fields
+      XdmNode doc = parseXML(content);
+      for (TemplateFieldValue field : fields) {
+        String xpathRaw = (String) field.get("xpath");
+        if (xpathRaw != null && xpathRaw.length() > 0) {
+          String[] xpaths = xpathRaw.split("##%##");
+          String value;
+          List<String> allValues = new ArrayList<>();
+          for (String xpath : xpaths) {
+            allValues.addAll(applyXpath(doc, xpath));
+          }
+          // if any of the values is different, concatenate all values in a
+          // string, otherwise return the value
+          boolean allEqual = allValues.stream().allMatch(s -> s.trim().equals(allValues.get(0).trim()));
+          if (allEqual && !allValues.isEmpty()) {
+            value = allValues.get(0);
+          } else {
+            value = String.join(" / ", allValues);
           }
+          field.set("value", value.trim());
         }
       }
     }
     return fields;
   }
 
+  /**
+   * Gets the fields of a template, processing the template only the first
+   * time. Returns a copy of the fields, so that their values can be changed.
+   *
+   * @param templateContent
+   *          The content of the template
+   * @return The fields of the template
+   */
+  private static TreeSet<TemplateFieldValue> getTemplateFieldDefinitions(String templateContent) {
+    TreeSet<TemplateFieldValue> definitions = fieldDefinitions.get(templateContent);
+    if (definitions == null) {
+      definitions = processTemplate(templateContent);
+      fieldDefinitions.put(templateContent, definitions);
+    }
+    return copyFields(definitions);
+  }
+
+  private static TreeSet<TemplateFieldValue> copyFields(TreeSet<TemplateFieldValue> fields) {
+    TreeSet<TemplateFieldValue> result = new TreeSet<>();
+    for (TemplateFieldValue field : fields) {
+      result.add(new TemplateFieldValue(field));
+    }
+    return result;
+  }
+
   public static TreeSet<TemplateFieldValue> processTemplate(String templateContent) {
     if (templateContent == null)
       return null;
 
-    TreeSet<TemplateFieldValue> values = new TreeSet<>();
-    Set<String> addedTags = new HashSet<>();
-    Handlebars handlebars = new Handlebars();
-
-    Template tmpl;
+    TemplateFields fields = new TemplateFields();
     try {
-      handlebars.registerHelper("field", (context, options) -> {
-        if (options.hash.containsKey("name")) {
-          String tagID = (String) options.hash.get("name");
-          if (context != null && !addedTags.contains(tagID)) {
-            HashMap<String, String> newHash = new HashMap<>();
-            for (String hashKey : options.hash.keySet()) {
-              String hashValue = options.hash.get(hashKey).toString();
-              newHash.put(hashKey, hashValue);
-            }
-            values.add(new TemplateFieldValue(tagID, new HashMap<>(newHash)));
-            addedTags.add(tagID);
-          }
-        }
-        return options.fn();
-      });
-      handlebars.registerHelper("ifCond", (context, options) -> {
-        // the first parameter of ifCond is placed in the context field by the
-        // parser
-        String condition = (context == null) ? Constants.MISC_OR_OP : context.toString();
-        List<Object> vals = Arrays.asList(options.params);
-        boolean display;
-        if (condition.equals(Constants.MISC_OR_OP)) {
-          display = false;
-          for (Object value : vals) {
-            if (value != null) {
-              display = true;
-              break;
-            }
-          }
-        } else if (condition.equals(Constants.MISC_AND_OP)) {
-          display = true;
-          for (Object value : vals) {
-            if (value == null) {
-              display = false;
-              break;
-            }
-          }
-        } else {
-          display = false;
-        }
-        return display ? options.fn() : options.inverse();
-      });
-      // Prevent errors from unknown helpers
-      handlebars.registerHelperMissing((o, options) -> options.fn());
-
-      tmpl = handlebars.compileInline(templateContent);
-      tmpl.apply(new HashMap<>());
+      applyCollectingFields(templateContent, fields);
     } catch (IOException e) {
       LOGGER.error("Error getting the MetadataValue list from the template", e);
     }
-    return values;
+    return fields.values;
   }
 
   public static String getXMLFromTemplate(String templateContent) {
-    TreeSet<TemplateFieldValue> values = new TreeSet<>();
-    Set<String> addedTags = new HashSet<>();
-    Handlebars handlebars = new Handlebars();
-
-    Template tmpl;
     String xml = null;
     try {
-      handlebars.registerHelper("field", (context, options) -> {
-        if (options.hash.containsKey("name")) {
-          String tagID = (String) options.hash.get("name");
-          if (context != null && !addedTags.contains(tagID)) {
-            HashMap<String, String> newHash = new HashMap<>();
-            for (String hashKey : options.hash.keySet()) {
-              String hashValue = options.hash.get(hashKey).toString();
-              newHash.put(hashKey, hashValue);
-            }
-            values.add(new TemplateFieldValue(tagID, new HashMap<>(newHash)));
-            addedTags.add(tagID);
+      xml = applyCollectingFields(templateContent, new TemplateFields());
+    } catch (IOException e) {
+      LOGGER.error("Error getting the MetadataValue list from the template", e);
+    }
+    return xml;
+  }
+
+  private static String applyCollectingFields(String templateContent, TemplateFields fields) throws IOException {
+    Template tmpl = getTemplate(fieldsHandlebars, fieldsTemplates, templateContent);
+    Context context = Context.newContext(new HashMap<>());
+    context.data(TEMPLATE_FIELDS_DATA, fields);
+    try {
+      return tmpl.apply(context);
+    } finally {
+      context.destroy();
+    }
+  }
+
+  /**
+   * Gets the compiled template used to render the metadata of a SIP, where the
+   * field helper only outputs its content. The templates are compiled only
+   * once for each template content.
+   *
+   * @param templateContent
+   *          The content of the template
+   * @return The compiled template
+   * @throws IOException
+   *           If the template can't be compiled
+   */
+  public static Template getRenderTemplate(String templateContent) throws IOException {
+    return getTemplate(renderHandlebars, renderTemplates, templateContent);
+  }
+
+  private static Template getTemplate(Handlebars handlebars, Map<String, Template> cache, String templateContent)
+    throws IOException {
+    Template tmpl = cache.get(templateContent);
+    if (tmpl == null) {
+      tmpl = handlebars.compileInline(templateContent);
+      cache.put(templateContent, tmpl);
+    }
+    return tmpl;
+  }
+
+  private static Handlebars createRenderHandlebars() {
+    Handlebars handlebars = new Handlebars();
+    handlebars.registerHelper("field", (o, options) -> options.fn());
+    handlebars.registerHelper("ifCond", TemplateUtils::ifCond);
+    return handlebars;
+  }
+
+  private static Handlebars createFieldsHandlebars() {
+    Handlebars handlebars = new Handlebars();
+    handlebars.registerHelper("field", (context, options) -> {
+      TemplateFields fields = options.data(TEMPLATE_FIELDS_DATA);
+      if (options.hash.containsKey("name")) {
+        String tagID = (String) options.hash.get("name");
+        if (context != null && !fields.addedTags.contains(tagID)) {
+          HashMap<String, String> newHash = new HashMap<>();
+          for (String hashKey : options.hash.keySet()) {
+            String hashValue = options.hash.get(hashKey).toString();
+            newHash.put(hashKey, hashValue);
           }
+          fields.values.add(new TemplateFieldValue(tagID, new HashMap<>(newHash)));
+          fields.addedTags.add(tagID);
         }
-        return options.fn();
-      });
-      handlebars.registerHelper("ifCond", (context, options) -> {
-        // the first parameter of ifCond is placed in the context field by the
-        // parser
-        String condition = (context == null) ? Constants.MISC_OR_OP : context.toString();
-        List<Object> vals = Arrays.asList(options.params);
-        boolean display;
-        if (condition.equals(Constants.MISC_OR_OP)) {
-          display = false;
-          for (Object value : vals) {
-            if (value != null) {
-              display = true;
-              break;
-            }
-          }
-        } else if (condition.equals(Constants.MISC_AND_OP)) {
+      }
+      return options.fn();
+    });
+    handlebars.registerHelper("ifCond", TemplateUtils::ifCond);
+    // Prevent errors from unknown helpers
+    handlebars.registerHelperMissing((o, options) -> options.fn());
+    return handlebars;
+  }
+
+  private static Object ifCond(Object context, Options options) throws IOException {
+    // the first parameter of ifCond is placed in the context field by the
+    // parser
+    String condition = (context == null) ? Constants.MISC_OR_OP : context.toString();
+    List<Object> vals = Arrays.asList(options.params);
+    boolean display;
+    if (condition.equals(Constants.MISC_OR_OP)) {
+      display = false;
+      for (Object value : vals) {
+        if (value != null) {
           display = true;
-          for (Object value : vals) {
-            if (value == null) {
-              display = false;
-              break;
-            }
-          }
-        } else {
+          break;
+        }
+      }
+    } else if (condition.equals(Constants.MISC_AND_OP)) {
+      display = true;
+      for (Object value : vals) {
+        if (value == null) {
           display = false;
+          break;
         }
-        return display ? options.fn() : options.inverse();
-      });
-      // Prevent errors from unknown helpers
-      handlebars.registerHelperMissing((o, options) -> options.fn());
-
-      tmpl = handlebars.compileInline(templateContent);
-      xml = tmpl.apply(new HashMap<>());
-    } catch (IOException e) {
-      LOGGER.error("Error getting the MetadataValue list from the template", e);
+      }
+    } else {
+      display = false;
     }
-    return xml;
+    return display ? options.fn() : options.inverse();
+  }
+
+  /**
+   * The fields found while applying a template, passed to the field helper in
+   * the data of the context, so that the compiled templates can be shared.
+   */
+  private static class TemplateFields {
+    private final TreeSet<TemplateFieldValue> values = new TreeSet<>();
+    private final Set<String> addedTags = new HashSet<>();
   }
 
   public static List<String> applyXpath(String xml, String xpathString) {
+    return applyXpath(parseXML(xml), xpathString);
+  }
+
+  /**
+   * Applies an XPath expression to a parsed document. The expressions are
+   * compiled only once.
+   *
+   * @param doc
+   *          The document, or null if it couldn't be parsed
+   * @param xpathString
+   *          The XPath expression
+   * @return The string values of the resulting items, or an empty list if there
+   *         was an error
+   */
+  public static List<String> applyXpath(XdmNode doc, String xpathString) {
     List<String> result = new ArrayList<>();
+    if (doc == null) {
+      return result;
+    }
     try {
-      Processor proc = new Processor(false);
-      XPathCompiler xpath = proc.newXPathCompiler();
-      DocumentBuilder builder = proc.newDocumentBuilder();
-
-      // Load the XML document.
-      StringReader reader = new StringReader(xml);
-      XdmNode doc = builder.build(new StreamSource(reader));
-
-      // Compile the xpath
-      XPathSelector selector = xpath.compile(xpathString).load();
+      XPathSelector selector = getXPath(xpathString).load();
       selector.setContextItem(doc);
 
       // Evaluate the expression.
@@ -221,4 +299,33 @@ public class TemplateUtils {
     return result;
   }
 
+  /**
+   * Parses an XML document to be used with {@link #applyXpath(XdmNode, String)}.
+   *
+   * @param xml
+   *          The XML content
+   * @return The parsed document, or null if there was an error
+   */
+  public static XdmNode parseXML(String xml) {
+    try {
+      DocumentBuilder builder = processor.newDocumentBuilder();
+      return builder.build(new StreamSource(new StringReader(xml)));
+    } catch (Exception e) {
+      LOGGER.error("Error parsing the XML to apply XPath", e);
+      return null;
+    }
+  }
+
+  private static XPathExecutable getXPath(String xpathString) throws SaxonApiException {
+    XPathExecutable result = xpaths.get(xpathString);
+    if (result == null) {
+      // the compiler can't be used by several threads at the same time
+      synchronized (xpathCompiler) {
+        result = xpathCompiler.compile(xpathString);
+      }
+      xpaths.put(xpathString, result);
+    }
+    return result;
+  }
+
 }
@@ -2,6 +2,7 @@ package org.roda.rodain.core.utils;
 
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 
 /**
  * @author Andre Pereira apereira@keep.pt
@@ -15,6 +16,16 @@ public interface TreeVisitor {
    */
   void preVisitDirectory(Path path, BasicFileAttributes attrs);
 
+  /**
+   * Method called with the entries of a directory, after preVisitDirectory and
+   * before any of the entries is visited.
+   * @param path The path of the directory
+   * @param entries The paths of the entries of the directory
+   */
+  default void visitDirectoryEntries(Path path, List<Path> entries) {
+    // most visitors only need the entries one by one
+  }
+
   /**
    * Method called after visiting a directory
    * @param path The path of the directory
@@ -2,32 +2,60 @@ package org.roda.rodain.core.utils;
 
 import java.io.IOException;
 import java.nio.file.AccessDeniedException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+import org.roda.rodain.core.ConfigurationManager;
+import org.roda.rodain.core.Constants;
+import org.roda.rodain.core.source.FileScanCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Walks the file trees of a set of paths, reporting every directory and file
+ * to a {@link TreeVisitor}.
+ * <p/>
+ * <p>
+ * Each directory is listed only once and the visitor receives its entries
+ * before any of them is visited, so that visitors that need to know all the
+ * content of a directory don't have to walk it again. The listings and the
+ * attributes come from the {@link FileScanCache}, so a directory that was
+ * already scanned and hasn't changed isn't read again.
+ * </p>
+ * <p>
+ * When the parallelism is bigger than 1, the directories are listed (and the
+ * attributes of their entries read) by a pool of threads, one task per
+ * directory, ahead of the visit. In each directory only the listings of the
+ * next few sub-directories are started, so the memory used by the listings
+ * not visited yet is bounded. The visitor is still called from this thread
+ * only and in the same order as a sequential walk, so visitors don't need to
+ * be thread-safe.
+ * </p>
+ *
  * @author Andre Pereira apereira@keep.pt
  * @since 01-10-2015.
  */
 public class WalkFileTree extends Thread {
   private static final Logger LOGGER = LoggerFactory.getLogger(WalkFileTree.class.getName());
+  // sub-directories of each directory listed ahead of the visit, per thread
+  private static final int READ_AHEAD_PER_THREAD = 2;
   private Set<String> paths;
   private TreeVisitor handler;
-  private boolean cancelled = false;
+  private int parallelism;
+  private ForkJoinPool pool;
+  private volatile boolean cancelled = false;
 
   private int processedFiles = 0, processedDirs = 0;
 
   /**
-   * Creates a new WalkFileTree object.
-   * 
+   * Creates a new WalkFileTree object, using the configured parallelism.
+   *
    * @param startPath
    *          The Set of paths used to start the file tree walking.
    * @param handler
@@ -35,63 +63,141 @@ public class WalkFileTree extends Thread {
    *          WalkFileTree object
    */
   public WalkFileTree(Set<String> startPath, TreeVisitor handler) {
+    this(startPath, handler, ConfigurationManager.getConfigAsInt(Constants.CONF_K_WALK_FILE_TREE_PARALLELISM, 1));
+  }
+
+  /**
+   * Creates a new WalkFileTree object.
+   *
+   * @param startPath
+   *          The Set of paths used to start the file tree walking.
+   * @param handler
+   *          The TreeVisitor that will use the information captured by the
+   *          WalkFileTree object
+   * @param parallelism
+   *          The number of directories listed at the same time. With 1 (or
+   *          less) the tree is walked sequentially.
+   */
+  public WalkFileTree(Set<String> startPath, TreeVisitor handler, int parallelism) {
     this.paths = startPath;
     this.handler = handler;
+    this.parallelism = parallelism;
   }
 
   /**
-   * Iterates the paths received in the constructor and uses each one in
-   * Files.walkFileTree().
+   * Walks the file trees in a new thread.
    */
   @Override
   public void run() {
-    for (String startPath : paths) {
-      handler.setStartPath(startPath);
-      final Path path = Paths.get(startPath);
-      // walkFileTree doesn't work if the start path is a file, so we call the
-      // method directly
-      try {
-        if (!Files.isDirectory(path)) {
-          handler.visitFile(path, Files.readAttributes(path, BasicFileAttributes.class));
-        } else {
-          Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-              processedFiles++;
-              handler.visitFile(file, attrs);
-              return isTerminated();
-            }
-
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-              handler.preVisitDirectory(dir, attrs);
-              return isTerminated();
-            }
-
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-              processedDirs++;
-              handler.postVisitDirectory(dir);
-              return isTerminated();
-            }
-
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-              handler.visitFileFailed(file);
-              return isTerminated();
-            }
-          });
+    walk();
+  }
+
+  /**
+   * Iterates the paths received in the constructor and walks the file tree of
+   * each one, in the calling thread. The walk stops as soon as possible after
+   * {@link #cancel()} is called.
+   */
+  public void walk() {
+    pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    try {
+      for (String startPath : paths) {
+        if (isTerminated()) {
+          break;
+        }
+        handler.setStartPath(startPath);
+        final Path path = Paths.get(startPath);
+        // the walk only starts on directories, so if the start path is a file we
+        // call the method directly
+        try {
+          if (!FileScanCache.isDirectory(path)) {
+            handler.visitFile(path, FileScanCache.getAttributes(path));
+          } else {
+            walkDirectory(path);
+          }
+        } catch (AccessDeniedException e) {
+          LOGGER.info("Access denied to file", e);
+        } catch (IOException e) {
+          LOGGER.error("Error walking the file tree", e);
         }
-      } catch (AccessDeniedException e) {
-        LOGGER.info("Access denied to file", e);
-      } catch (IOException e) {
-        LOGGER.error("Error walking the file tree", e);
+      }
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
       }
     }
 
     handler.end();
   }
 
+  private void walkDirectory(Path path) throws IOException {
+    BasicFileAttributes attrs = FileScanCache.readAttributes(path);
+    ListDirectory listing = new ListDirectory(path);
+    if (pool != null) {
+      pool.execute(listing);
+    }
+    visitDirectory(new Entry(path, attrs, listing));
+  }
+
+  /*
+   * Delivers the visit of a directory and all its descendants, in the same
+   * order as Files.walkFileTree(). Returns false if the walk must terminate.
+   */
+  private boolean visitDirectory(Entry directory) {
+    ListDirectory listing = directory.listing;
+    List<Entry> entries = pool != null ? listing.join() : listing.listEntries();
+    if (entries == null) {
+      handler.visitFileFailed(directory.path);
+      return !isTerminated();
+    }
+    handler.preVisitDirectory(directory.path, directory.attrs);
+    if (isTerminated()) {
+      return false;
+    }
+    List<Path> entryPaths = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      entryPaths.add(entry.path);
+    }
+    handler.visitDirectoryEntries(directory.path, entryPaths);
+    int readAhead = parallelism * READ_AHEAD_PER_THREAD;
+    // the next entry whose listing may be started and the number of listings
+    // started and not visited yet
+    int next = 0, started = 0;
+    for (int i = 0; i < entries.size(); i++) {
+      if (pool != null) {
+        for (; next < entries.size() && started < readAhead; next++) {
+          ListDirectory ahead = entries.get(next).listing;
+          if (ahead != null) {
+            pool.execute(ahead);
+            started++;
+          }
+        }
+      }
+      Entry entry = entries.get(i);
+      // release the entries as soon as they're visited
+      entries.set(i, null);
+      if (entry.listing != null && pool != null) {
+        started--;
+      }
+      boolean proceed;
+      if (entry.attrs == null) {
+        handler.visitFileFailed(entry.path);
+        proceed = !isTerminated();
+      } else if (entry.listing != null) {
+        proceed = visitDirectory(entry);
+      } else {
+        processedFiles++;
+        handler.visitFile(entry.path, entry.attrs);
+        proceed = !isTerminated();
+      }
+      if (!proceed) {
+        return false;
+      }
+    }
+    processedDirs++;
+    handler.postVisitDirectory(directory.path);
+    return !isTerminated();
+  }
+
   /**
    * Cancels the execution of the WalkFileTree object.
    */
@@ -113,11 +219,71 @@ public class WalkFileTree extends Thread {
     return processedFiles;
   }
 
-  private FileVisitResult isTerminated() {
+  private boolean isTerminated() {
     // terminate if the thread has been interrupted
     if (Thread.interrupted() || cancelled) {
-      return FileVisitResult.TERMINATE;
+      cancelled = true;
+    }
+    return cancelled;
+  }
+
+  /**
+   * A path found while walking the tree. The attributes are null when they
+   * couldn't be read and the listing is only set for directories.
+   */
+  private static class Entry {
+    private final Path path;
+    private final BasicFileAttributes attrs;
+    private final ListDirectory listing;
+
+    Entry(Path path, BasicFileAttributes attrs, ListDirectory listing) {
+      this.path = path;
+      this.attrs = attrs;
+      this.listing = listing;
+    }
+  }
+
+  /**
+   * Lists a directory. In a parallel walk, it's run by the pool when the visit
+   * gets close to the directory. Results in null if the directory couldn't be
+   * opened.
+   */
+  private class ListDirectory extends RecursiveTask<List<Entry>> {
+    private final Path dir;
+
+    ListDirectory(Path dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    protected List<Entry> compute() {
+      return listEntries();
+    }
+
+    List<Entry> listEntries() {
+      List<Entry> entries = new ArrayList<>();
+      if (cancelled) {
+        return entries;
+      }
+      try {
+        for (Path child : FileScanCache.listDirectory(dir)) {
+          BasicFileAttributes attrs = null;
+          try {
+            attrs = FileScanCache.getAttributes(child);
+          } catch (IOException e) {
+            LOGGER.debug("Unable to read the attributes of '{}'", child, e);
+          }
+          ListDirectory childListing = null;
+          if (attrs != null && attrs.isDirectory()) {
+            childListing = new ListDirectory(child);
+          }
+          entries.add(new Entry(child, attrs, childListing));
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Unable to list the directory '{}'", dir, e);
+        return null;
+      }
+      return entries;
     }
-    return FileVisitResult.CONTINUE;
   }
 }
@@ -5,7 +5,9 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URISyntaxException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -19,8 +21,10 @@ import org.roda.rodain.core.Constants;
 import org.roda.rodain.core.Controller;
 import org.roda.rodain.core.I18n;
 import org.roda.rodain.core.PathCollection;
+import org.roda.rodain.core.creation.MetadataValidator;
 import org.roda.rodain.core.schema.Sip;
 import org.roda.rodain.core.sip.SipRepresentation;
+import org.roda.rodain.core.source.FileScanCache;
 import org.roda.rodain.core.utils.OpenPathInExplorer;
 import org.roda.rodain.ui.creation.CreationModalPreparation;
 import org.roda.rodain.ui.creation.CreationModalStage;
@@ -31,6 +35,7 @@ import org.roda.rodain.ui.rules.VisitorStack;
 import org.roda.rodain.ui.schema.ui.SchemaPane;
 import org.roda.rodain.ui.source.FileExplorerPane;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.roda.rodain.ui.utils.FontAwesomeImageCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -164,6 +169,9 @@ public class RodaInApplication extends Application {
         ConfigurationManager.initialize();
         LOGGER.info("Done initializing RODA-in folders & properties");
 
+        // reuse the scans of the source folders made in the previous session
+        FileScanCache.load(ConfigurationManager.getRodainPath().resolve(Constants.RODAIN_SCAN_CACHE_FILE));
+
         // load the custom fonts
         Font.loadFont(ClassLoader.getSystemResource("fonts/Ubuntu-Regular.ttf").toExternalForm(), 10);
         Font.loadFont(ClassLoader.getSystemResource("fonts/Ubuntu-Medium.ttf").toExternalForm(), 10);
@@ -373,6 +381,9 @@ public class RodaInApplication extends Application {
     createSIPs.setAccelerator(KeyCombination.keyCombination("Ctrl+X"));
     createSIPs.setOnAction(event -> exportSIPs());
 
+    final MenuItem validateMetadata = new MenuItem(I18n.t(Constants.I18N_MAIN_VALIDATE_METADATA));
+    validateMetadata.setOnAction(event -> validateMetadata());
+
     final MenuItem quit = new MenuItem(I18n.t(Constants.I18N_MAIN_QUIT));
     quit.setAccelerator(KeyCombination.keyCombination("Ctrl+Q"));
     quit.setOnAction(event -> closeApp());
@@ -390,6 +401,7 @@ public class RodaInApplication extends Application {
 
       if (dlg.getResult().getButtonData() == ButtonBar.ButtonData.OK_DONE) {
         PathCollection.reset();
+        FileScanCache.clear();
         inspectionPane = new InspectionPane(stage);
         fileExplorer = new FileExplorerPane(stage);
         schemePane = new SchemaPane(stage);
@@ -399,7 +411,7 @@ public class RodaInApplication extends Application {
       }
     });
 
-    menuFile.getItems().addAll(reset, openFolder, createSIPs, openConfigurationFolder, quit);
+    menuFile.getItems().addAll(reset, openFolder, validateMetadata, createSIPs, openConfigurationFolder, quit);
 
     // Classification scheme
     final MenuItem createCS = new MenuItem(I18n.t(Constants.I18N_MAIN_CREATE_CS));
@@ -597,6 +609,7 @@ public class RodaInApplication extends Application {
   private static void closeApp() {
     Controller.exportClassificationScheme(schemePane.getSchemaNodes(),
       ConfigurationManager.getRodainPath().resolve(".plan.temp").toString());
+    FileScanCache.save(ConfigurationManager.getRodainPath().resolve(Constants.RODAIN_SCAN_CACHE_FILE));
     // 20170308 hsilva: disabled watchservice
     // fileExplorer.closeWatcher();
     VisitorStack.end();
@@ -688,6 +701,72 @@ public class RodaInApplication extends Application {
     creationStage.setRoot(pane);
   }
 
+  /**
+   * Validates the metadata of all the SIPs against their schemas, in the
+   * background, and shows the SIPs with invalid metadata, so that they can be
+   * fixed before the SIPs are exported.
+   */
+  public static void validateMetadata() {
+    // force the edits to the metadata text area to be saved
+    inspectionPane.saveMetadata();
+
+    List<Sip> sips = new ArrayList<>(getAllDescriptionObjects().keySet());
+    MetadataValidator validator = new MetadataValidator(sips);
+    Task<List<MetadataValidator.Failure>> task = new Task<List<MetadataValidator.Failure>>() {
+      @Override
+      protected List<MetadataValidator.Failure> call() {
+        return validator.validate();
+      }
+    };
+    task.setOnSucceeded(event -> showMetadataValidation(validator, task.getValue(), sips.size()));
+    BackgroundTasks.submit(task);
+  }
+
+  private static void showMetadataValidation(MetadataValidator validator, List<MetadataValidator.Failure> failures,
+    int sipCount) {
+    if (failures.isEmpty()) {
+      Alert dlg = new Alert(Alert.AlertType.INFORMATION);
+      dlg.initStyle(StageStyle.UNDECORATED);
+      dlg.setHeaderText(String.format(I18n.t(Constants.I18N_MAIN_VALIDATE_METADATA_VALID), sipCount));
+      dlg.initModality(Modality.APPLICATION_MODAL);
+      dlg.initOwner(stage);
+      dlg.show();
+      return;
+    }
+
+    StringBuilder errors = new StringBuilder();
+    for (MetadataValidator.Failure failure : failures) {
+      errors.append(failure.getSip().getTitle()).append(" (").append(failure.getMetadataId()).append("): ")
+        .append(failure.getMessage()).append(System.lineSeparator());
+    }
+    TextArea textArea = new TextArea(errors.toString());
+    textArea.setWrapText(true);
+    textArea.setEditable(false);
+
+    ButtonType saveReport = new ButtonType(I18n.t(Constants.I18N_MAIN_VALIDATE_METADATA_SAVE_REPORT),
+      ButtonBar.ButtonData.LEFT);
+    Alert dlg = new Alert(Alert.AlertType.WARNING);
+    dlg.getButtonTypes().add(saveReport);
+    dlg.initStyle(StageStyle.UNDECORATED);
+    dlg.setHeaderText(String.format(I18n.t(Constants.I18N_MAIN_VALIDATE_METADATA_INVALID),
+      validator.getInvalidSips().size(), sipCount));
+    dlg.setContentText(I18n.t(Constants.I18N_MAIN_VALIDATE_METADATA_INVALID_CONTENT));
+    dlg.getDialogPane().setExpandableContent(textArea);
+    dlg.getDialogPane().setExpanded(true);
+    dlg.initModality(Modality.APPLICATION_MODAL);
+    dlg.initOwner(stage);
+    dlg.showAndWait().filter(saveReport::equals).ifPresent(result -> {
+      FileChooser chooser = new FileChooser();
+      chooser.setTitle(I18n.t(Constants.I18N_FILE_CHOOSER_TITLE));
+      chooser.setInitialFileName(String.format(Constants.SIP_METADATA_VALIDATION_FILE_FORMAT,
+        new SimpleDateFormat(Constants.DATE_FORMAT_1).format(new Date())));
+      File selectedFile = chooser.showSaveDialog(stage);
+      if (selectedFile != null) {
+        validator.writeCsv(selectedFile.toPath());
+      }
+    });
+  }
+
   /**
    * Shows a pane to rename a representation.
    */
@@ -2,7 +2,6 @@ package org.roda.rodain.ui.inspection;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -54,6 +53,7 @@ import org.roda.rodain.ui.schema.ui.SchemaNode;
 import org.roda.rodain.ui.schema.ui.SipPreviewNode;
 import org.roda.rodain.ui.source.SourceTreeCell;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.roda.rodain.ui.utils.FontAwesomeImageCreator;
 import org.roda_project.commons_ip.model.IPContentType;
 import org.roda_project.commons_ip.model.RepresentationContentType;
@@ -113,6 +113,10 @@ import javafx.util.converter.LocalDateStringConverter;
  */
 public class InspectionPane extends BorderPane {
   private static final Logger LOGGER = LoggerFactory.getLogger(InspectionPane.class.getName());
+  // the keys of the tasks that update the panes of the selected item
+  private static final String TASK_KEY_CONTENT = "content";
+  private static final String TASK_KEY_DOCS = "documentation";
+  private static final String TASK_KEY_METADATA = "metadata";
   private HBox topBox;
   private VBox center;
   private HBox topSubtitle;
@@ -544,7 +548,7 @@ public class InspectionPane extends BorderPane {
     };
 
     validationTask.setOnSucceeded(Void -> popOver.updateContent(validationTask.getValue(), message.toString()));
-    new Thread(validationTask).start();
+    BackgroundTasks.submit(validationTask);
   }
 
   private void updateForm() {
@@ -1429,7 +1433,7 @@ public class InspectionPane extends BorderPane {
         content.setBottom(contentBottom);
       }
     });
-    new Thread(contentTask).start();
+    BackgroundTasks.submit(TASK_KEY_CONTENT, contentTask);
   }
 
   private void createDocumentation(SipPreviewNode sip, boolean active) {
@@ -1467,7 +1471,7 @@ public class InspectionPane extends BorderPane {
       }
     });
 
-    new Thread(docsTask).start();
+    BackgroundTasks.submit(TASK_KEY_DOCS, docsTask);
   }
 
   private TreeItem<Object> recCreateSipContent(TreeNode node, TreeItem parent) {
@@ -1595,8 +1599,7 @@ public class InspectionPane extends BorderPane {
         showMetadataPane(show);
       }
 
-      InputStream schema = dom.getSchema();
-      if (schema == null) {
+      if (!dom.hasSchema()) {
         topButtons.remove(validationButton);
       } else {
         topButtons.add(validationButton);
@@ -1612,7 +1615,7 @@ public class InspectionPane extends BorderPane {
       updateMetadataCombo(false);
       metadataCombo.getSelectionModel().select(selectedIndex);
     });
-    new Thread(metadataTask).start();
+    BackgroundTasks.submit(TASK_KEY_METADATA, metadataTask);
   }
 
   /**
@@ -2153,9 +2156,12 @@ public class InspectionPane extends BorderPane {
     Set<TreeNode> result = dc.start();
 
     // Set paths as mapped
+    Map<Path, PathState> mappedPaths = new HashMap<>();
     for (TreeNode tn : result) {
-      PathCollection.addPath(tn.getPath(), PathState.MAPPED);
+      mappedPaths.put(tn.getPath(), PathState.MAPPED);
     }
+    // the path collection can be busy with the paths of a walk
+    BackgroundTasks.submit(() -> PathCollection.addPaths(mappedPaths));
 
     // Add to the SIP, either to a Directory or to a Representation
     // Also add to the tree
@@ -1,20 +1,18 @@
 package org.roda.rodain.ui.inspection.trees;
 
-import java.io.IOException;
-import java.nio.file.AccessDeniedException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Observable;
 import java.util.Set;
 
 import org.roda.rodain.core.rules.TreeNode;
 import org.roda.rodain.core.rules.filters.ContentFilter;
+import org.roda.rodain.core.utils.TreeVisitor;
+import org.roda.rodain.core.utils.WalkFileTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,7 +28,8 @@ public class ContentCreator extends Observable {
 
   private Set<ContentFilter> filters;
 
-  private boolean cancelled = false;
+  private volatile boolean cancelled = false;
+  private WalkFileTree walker;
 
   /**
    * Creates a new DocumentationCreator object
@@ -46,50 +45,64 @@ public class ContentCreator extends Observable {
   }
 
   public Set<TreeNode> start() {
-    for (Path path : paths) {
-      // walkFileTree doesn't work if the start path is a file, so we call the
-      // method directly
-      if (!Files.isDirectory(path)) {
-        visitFile(path, null);
-      } else {
-        try {
-          ContentCreator refToThis = this;
-          Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-              refToThis.visitFile(file, attrs);
-              return isTerminated();
-            }
-
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-              refToThis.preVisitDirectory(dir, attrs);
-              return isTerminated();
-            }
-
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-              refToThis.postVisitDirectory(dir);
-              return isTerminated();
-            }
-          });
-        } catch (AccessDeniedException e) {
-          LOGGER.info("Access denied to file", e);
-        } catch (IOException e) {
-          LOGGER.error("Error walking the file tree", e);
-        }
+    Set<String> startPaths = new LinkedHashSet<>();
+    paths.forEach(path -> startPaths.add(path.toString()));
+    ContentCreator refToThis = this;
+    // the walk is run in this thread, since the content is needed right away.
+    // The directories that were already scanned (by the file explorer or the
+    // rules) aren't read again
+    walker = new WalkFileTree(startPaths, new TreeVisitor() {
+      @Override
+      public void preVisitDirectory(Path path, BasicFileAttributes attrs) {
+        refToThis.preVisitDirectory(path, attrs);
       }
+
+      @Override
+      public void postVisitDirectory(Path path) {
+        refToThis.postVisitDirectory(path);
+      }
+
+      @Override
+      public void visitFile(Path path, BasicFileAttributes attrs) {
+        refToThis.visitFile(path, attrs);
+      }
+
+      @Override
+      public void visitFileFailed(Path path) {
+        LOGGER.info("Unable to read '{}'", path);
+      }
+
+      @Override
+      public void end() {
+        refToThis.end();
+      }
+
+      @Override
+      public String getId() {
+        return null;
+      }
+
+      @Override
+      public void setStartPath(String path) {
+        // do nothing
+      }
+    });
+    if (cancelled) {
+      walker.cancel();
     }
-    end();
+    walker.walk();
     return files;
   }
 
-  private FileVisitResult isTerminated() {
-    // terminate if the thread has been interrupted
-    if (Thread.interrupted() || cancelled) {
-      return FileVisitResult.TERMINATE;
+  /**
+   * Stops the creation of the content. The walk terminates as soon as the
+   * entry being visited is processed.
+   */
+  public void cancel() {
+    cancelled = true;
+    if (walker != null) {
+      walker.cancel();
     }
-    return FileVisitResult.CONTINUE;
   }
 
   private boolean filter(Path path) {
@@ -113,7 +126,7 @@ public class ContentCreator extends Observable {
   private void preVisitDirectory(Path path, BasicFileAttributes attrs) {
     if (filter(path) || cancelled)
       return;
-    TreeNode newNode = new TreeNode(path);
+    TreeNode newNode = new TreeNode(path, attrs);
     nodes.add(newNode);
   }
 
@@ -149,9 +162,9 @@ public class ContentCreator extends Observable {
       return;
     }
     if (nodes.isEmpty())
-      files.add(new TreeNode(path));
+      files.add(new TreeNode(path, attrs));
     else
-      nodes.peekLast().add(path);
+      nodes.peekLast().add(new TreeNode(path, attrs));
   }
 
   /**
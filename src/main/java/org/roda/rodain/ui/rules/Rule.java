@@ -36,6 +36,7 @@ import org.roda.rodain.ui.schema.ui.SchemaNode;
 import org.roda.rodain.ui.schema.ui.SipPreviewNode;
 import org.roda.rodain.ui.source.items.SourceTreeDirectory;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.roda.rodain.ui.utils.FontAwesomeImageCreator;
 
 import javafx.concurrent.Task;
@@ -375,7 +376,7 @@ public class Rule extends Observable implements Observer, Comparable {
           sip.setRemoved();
           for (SipRepresentation sr : sip.getRepresentations()) {
             for (TreeNode tn : sr.getFiles()) {
-              paths += tn.getFullTreePaths().size();
+              paths += tn.getFullTreePathsCount();
             }
           }
         }
@@ -406,7 +407,7 @@ public class Rule extends Observable implements Observer, Comparable {
       notifyObservers(Constants.EVENT_REMOVED_RULE);
     });
 
-    new Thread(task).start();
+    BackgroundTasks.submit(task);
   }
 
   /**
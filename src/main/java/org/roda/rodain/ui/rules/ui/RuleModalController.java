@@ -18,6 +18,7 @@ import org.roda.rodain.ui.rules.Rule;
 import org.roda.rodain.ui.rules.VisitorStack;
 import org.roda.rodain.ui.schema.ui.SchemaNode;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,7 +76,7 @@ public class RuleModalController {
 
     task.setOnSucceeded(event -> Platform.runLater(() -> stage.setRoot(pane, false)));
 
-    new Thread(task).start();
+    BackgroundTasks.submit(task);
   }
 
   /**
@@ -18,6 +18,7 @@ import org.roda.rodain.core.sip.SipPreview;
 import org.roda.rodain.ui.RodaInApplication;
 import org.roda.rodain.ui.rules.Rule;
 import org.roda.rodain.ui.rules.ui.RuleModalController;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.roda.rodain.ui.utils.FontAwesomeImageCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -287,7 +288,7 @@ public class SchemaNode extends TreeItem<String> implements Observer {
         return null;
       }
     };
-    new Thread(sipRemoveTask).start();
+    BackgroundTasks.submit(sipRemoveTask);
 
     Set<Rule> allRules = getAllRules();
     // first start the modal to give feedback to the user
@@ -31,6 +31,7 @@ import org.roda.rodain.ui.source.items.SourceTreeDirectory;
 import org.roda.rodain.ui.source.items.SourceTreeFile;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
 import org.roda.rodain.ui.utils.AutoscrollTreeView;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -559,7 +560,7 @@ public class SchemaPane extends BorderPane {
         // remove the nodes from the tree
         removeTask.setOnSucceeded(event -> selectedItems.forEach(this::removeNode));
 
-        new Thread(removeTask).start();
+        BackgroundTasks.submit(removeTask);
       }
     }
   }
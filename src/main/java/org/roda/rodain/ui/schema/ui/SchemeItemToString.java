@@ -16,6 +16,7 @@ import org.roda.rodain.core.rules.TreeNode;
 import org.roda.rodain.core.sip.SipPreview;
 import org.roda.rodain.core.sip.SipRepresentation;
 import org.roda.rodain.ui.Footer;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -85,7 +86,8 @@ public class SchemeItemToString {
       sb.append(Controller.formatSize(size));
       Footer.setClassPlanStatus(sb.toString());
     });
-    new Thread(computeThread).start();
+    // only the footer of the last selection is needed
+    BackgroundTasks.submit(SchemeItemToString.class, computeThread);
   }
 
   private void compute(Set<SipPreview> sipPreviews) {
@@ -27,11 +27,13 @@ import org.roda.rodain.ui.Footer;
 import org.roda.rodain.ui.RodaInApplication;
 import org.roda.rodain.ui.source.items.SourceTreeDirectory;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Alert;
@@ -162,11 +164,14 @@ public class FileExplorerPane extends BorderPane implements Observer {
         List<TreeItem<String>> selectedItems = treeView.getSelectionModel().getSelectedItems();
         if (selectedItems == null)
           return;
-        for (TreeItem ti : selectedItems) {
-          SourceTreeItem sti = (SourceTreeItem) ti;
-          if (sti.getState() == PathState.IGNORED)
-            sti.removeIgnore();
-        }
+        List<TreeItem<String>> toRemoveIgnore = new ArrayList<>(selectedItems);
+        BackgroundTasks.submit(() -> {
+          for (TreeItem ti : toRemoveIgnore) {
+            SourceTreeItem sti = (SourceTreeItem) ti;
+            if (sti.getState() == PathState.IGNORED)
+              sti.removeIgnore();
+          }
+        });
         selectedIsIgnored = false;
         ignore.setText(I18n.t(Constants.I18N_IGNORE));
       } else {
@@ -324,7 +329,7 @@ public class FileExplorerPane extends BorderPane implements Observer {
     SourceTreeDirectory rootNode = new SourceTreeDirectory(rootPath, new SourceDirectory(rootPath, isShowFiles()),
       null);
     realRoots.put(rootPath.toString(), rootNode);
-    PathCollection.addItem(rootNode);
+    BackgroundTasks.submit(() -> PathCollection.addItem(rootNode));
     rootNode.setExpanded(true);
     dummyRoot.getChildren().add(rootNode);
     Set<String> singlePath = new HashSet<>();
@@ -483,22 +488,39 @@ public class FileExplorerPane extends BorderPane implements Observer {
    *          The set of items to be ignored
    */
   public void ignore(Set<SourceTreeItem> items) {
-    for (SourceTreeItem item : items) {
-      if (item.getState() == PathState.NORMAL)
-        item.addIgnore();
-
-      SourceTreeDirectory parent = item.getParentDir();
-      if (!isShowIgnored()) {
-        if (parent != null) {
-          parent.hideIgnored();
+    // the paths are ignored in the background, since the path collection can
+    // be busy with the paths of a walk
+    Task<Void> task = new Task<Void>() {
+      @Override
+      protected Void call() {
+        for (SourceTreeItem item : items) {
+          if (item.getState() == PathState.NORMAL)
+            item.addIgnore();
         }
-        treeView.getSelectionModel().clearSelection();
-      } else {// force update
-        String value = item.getValue();
-        item.setValue(null);
-        item.setValue(value);
+        return null;
       }
-    }
+    };
+    task.setOnSucceeded(event -> {
+      Set<SourceTreeDirectory> parents = new HashSet<>();
+      for (SourceTreeItem item : items) {
+        SourceTreeDirectory parent = item.getParentDir();
+        if (!isShowIgnored()) {
+          if (parent != null) {
+            parents.add(parent);
+          }
+          treeView.getSelectionModel().clearSelection();
+        } else {// force update
+          String value = item.getValue();
+          item.setValue(null);
+          item.setValue(value);
+        }
+      }
+      // update each directory only once
+      for (SourceTreeDirectory parent : parents) {
+        parent.updateVisibility();
+      }
+    });
+    BackgroundTasks.submit(task);
   }
 
   /**
@@ -513,14 +535,8 @@ public class FileExplorerPane extends BorderPane implements Observer {
     if (realRoots == null || realRoots.isEmpty())
       return;
 
-    for (SourceTreeDirectory root : realRoots.values()) {
-      showFiles = !isShowFiles();
-      if (isShowFiles()) {
-        root.showFiles();
-      } else {
-        root.hideFiles();
-      }
-    }
+    showFiles = !isShowFiles();
+    SourceTreeDirectory.updateVisibility(realRoots.values());
 
     // force update
     treeView.getRoot().setExpanded(false);
@@ -532,13 +548,7 @@ public class FileExplorerPane extends BorderPane implements Observer {
       return;
 
     showIgnored = !isShowIgnored();
-    for (SourceTreeDirectory root : realRoots.values()) {
-      if (isShowIgnored()) {
-        root.showIgnored();
-      } else {
-        root.hideIgnored();
-      }
-    }
+    SourceTreeDirectory.updateVisibility(realRoots.values());
 
     // force update
     treeView.getRoot().setExpanded(false);
@@ -550,13 +560,7 @@ public class FileExplorerPane extends BorderPane implements Observer {
       return;
 
     showMapped = !isShowMapped();
-    for (SourceTreeDirectory root : realRoots.values()) {
-      if (isShowMapped()) {
-        root.showMapped();
-      } else {
-        root.hideMapped();
-      }
-    }
+    SourceTreeDirectory.updateVisibility(realRoots.values());
 
     // force update
     treeView.getRoot().setExpanded(false);
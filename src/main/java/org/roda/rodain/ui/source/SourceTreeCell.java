@@ -1,14 +1,18 @@
 package org.roda.rodain.ui.source;
 
+import java.nio.file.Paths;
+
 import org.roda.rodain.core.ConfigurationManager;
 import org.roda.rodain.core.Constants;
 import org.roda.rodain.core.Constants.PathState;
 import org.roda.rodain.core.I18n;
+import org.roda.rodain.core.PathCollection;
 import org.roda.rodain.ui.source.items.SourceTreeDirectory;
 import org.roda.rodain.ui.source.items.SourceTreeFile;
 import org.roda.rodain.ui.source.items.SourceTreeItem;
 import org.roda.rodain.ui.source.items.SourceTreeLoadMore;
 import org.roda.rodain.ui.source.items.SourceTreeLoading;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 
 import javafx.geometry.Pos;
 import javafx.scene.control.ContextMenu;
@@ -35,13 +39,12 @@ public class SourceTreeCell extends TreeCell<String> {
     removeIgnore.setId("removeIgnore");
     menu.getItems().add(removeIgnore);
     removeIgnore.setOnAction(event -> {
-      TreeItem<String> treeItem = getTreeItem();
-      SourceTreeItem sti = (SourceTreeItem) treeItem;
-      sti.removeIgnore();
-      // force update
-      String value = treeItem.getValue();
-      treeItem.setValue("");
-      treeItem.setValue(value);
+      SourceTreeItem sti = (SourceTreeItem) getTreeItem();
+      // the path collection can be busy with the paths of a walk
+      BackgroundTasks.submit(() -> {
+        sti.removeIgnore();
+        sti.forceUpdate();
+      });
     });
   }
 
@@ -54,6 +57,7 @@ public class SourceTreeCell extends TreeCell<String> {
       hbox.setAlignment(Pos.CENTER_LEFT);
       Label lab = new Label(item);
       Label optionalLabel = null;
+      Label countLabel = null;
       lab.getStyleClass().add(Constants.CSS_CELLTEXT);
       lab.setId("");
       Image icon = null;
@@ -94,6 +98,15 @@ public class SourceTreeCell extends TreeCell<String> {
           optionalLabel = new Label(((SourceTreeDirectory) treeItem).getPath());
           optionalLabel.setStyle(ConfigurationManager.getStyle("source.cell.mapped"));
         }
+        // partially mapped directory, show how much of it is already mapped
+        if (sti.getState() == PathState.NORMAL) {
+          PathCollection.StateCount count = PathCollection.getDescendantsStateCount(Paths.get(sti.getPath()));
+          if (count.getMapped() != 0) {
+            countLabel = new Label(String.format(I18n.t(Constants.I18N_SOURCE_TREE_CELL_MAPPED_COUNT),
+              count.getMapped(), count.getTotal()));
+            countLabel.setStyle(ConfigurationManager.getStyle("source.cell.mapped"));
+          }
+        }
       } else {
         if (treeItem instanceof SourceTreeFile)
           icon = SourceTreeFile.fileImage;
@@ -111,6 +124,8 @@ public class SourceTreeCell extends TreeCell<String> {
       hbox.getChildren().addAll(new ImageView(icon), lab);
       if (optionalLabel != null)
         hbox.getChildren().add(optionalLabel);
+      if (countLabel != null)
+        hbox.getChildren().add(countLabel);
       setGraphic(hbox);
     } else
       empty();
@@ -1,15 +1,19 @@
 package org.roda.rodain.ui.source.items;
 
 import java.io.File;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.WatchKey;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.stream.Collectors;
@@ -18,11 +22,13 @@ import org.roda.rodain.core.Constants;
 import org.roda.rodain.core.Constants.PathState;
 import org.roda.rodain.core.PathCollection;
 import org.roda.rodain.core.rules.filters.IgnoredFilter;
+import org.roda.rodain.core.source.FileScanCache;
 import org.roda.rodain.core.source.representation.SourceDirectory;
 import org.roda.rodain.core.source.representation.SourceItem;
 import org.roda.rodain.ui.rules.Rule;
 import org.roda.rodain.ui.source.ExpandedEventHandler;
 import org.roda.rodain.ui.source.FileExplorerPane;
+import org.roda.rodain.ui.utils.BackgroundTasks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -101,246 +107,184 @@ public class SourceTreeDirectory extends SourceTreeItem {
   }
 
   /**
-   * Creates a task to hide all this item's mapped items. The task is needed to
-   * prevent the UI thread from hanging due to the computations.
-   * <p/>
-   * First, it removes all the children with the MAPPED state and adds them to
-   * the mapped set, so that they can be shown at a later date. If a child is a
-   * directory, this method is called in that item. Finally, clears the children
-   * and adds the new list of items.
+   * Creates a task to show or hide the mapped, ignored and file items of this
+   * directory and of all its loaded subdirectories, according to the flags of
+   * the FileExplorerPane. The task is needed to prevent the UI thread from
+   * hanging due to the computations.
    *
-   * @see #showMapped()
+   * @see #updateVisibility(Collection)
    */
-  public synchronized void hideMapped() {
-    final ArrayList<TreeItem<String>> newChildren = new ArrayList<>(getChildren());
-    Task<Void> task = new Task<Void>() {
-      @Override
-      protected Void call() throws Exception {
-        Set<TreeItem> toRemove = new HashSet<>();
-        for (TreeItem sti : newChildren) {
-          SourceTreeItem item = (SourceTreeItem) sti;
-          if (item.getState() == PathState.MAPPED || item instanceof SourceTreeLoadMore) {
-            mapped.add(item);
-            toRemove.add(sti);
-          }
-          if (item instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) item).hideMapped();
-        }
-        newChildren.removeAll(toRemove);
-        return null;
-      }
-    };
-    task.setOnSucceeded(event -> getChildren().setAll(newChildren));
-
-    new Thread(task).start();
+  public void updateVisibility() {
+    if (!Platform.isFxApplicationThread()) {
+      Platform.runLater(this::updateVisibility);
+      return;
+    }
+    BackgroundTasks.submit(createVisibilityTask(Collections.singleton(this)));
   }
 
   /**
-   * Creates a task to show all this item's mapped items. The task is needed to
-   * prevent the UI thread from hanging due to the computations.
+   * Creates a task to show or hide the mapped, ignored and file items of the
+   * directories and of all their loaded subdirectories, according to the flags
+   * of the FileExplorerPane.
    * <p/>
-   * First, it adds all the items in the mapped set, which are the previously
-   * hidden items, and clears the set. We need to be careful in this step
-   * because if the hiddenFiles flag is true, then we must hide the mapped items
-   * that are files. Then makes a call to this method for all its children and
-   * hidden ignored items. Finally, clears the children, adds the new list of
-   * items, and sorts them.
+   * <p>
+   * The items of each loaded directory (the shown and the hidden ones) are
+   * copied in the UI thread, which is the only one that changes them. Then the
+   * task distributes the copied items of each directory between its children
+   * and the ignored, mapped and files sets, and sorts the new children.
+   * Finally, all the directories are updated at once in the UI thread, only
+   * changing the children of the directories whose children changed. A new
+   * update cancels the previous one if it hasn't ended yet.
+   * </p>
    *
-   * @see #sortChildren()
-   * @see #hideMapped()
+   * @param roots
+   *          The directories to be updated
    */
-  public synchronized void showMapped() {
-    final ArrayList<TreeItem<String>> newChildren = new ArrayList<>(getChildren());
-    Task<Void> task = new Task<Void>() {
+  public static void updateVisibility(Collection<SourceTreeDirectory> roots) {
+    if (!Platform.isFxApplicationThread()) {
+      Platform.runLater(() -> updateVisibility(roots));
+      return;
+    }
+    BackgroundTasks.submit(SourceTreeDirectory.class, createVisibilityTask(roots));
+  }
+
+  private static Task<List<VisibilityUpdate>> createVisibilityTask(Collection<SourceTreeDirectory> roots) {
+    final Map<SourceTreeDirectory, List<TreeItem>> snapshot = takeItemsSnapshot(roots);
+    final boolean showFiles = FileExplorerPane.isShowFiles();
+    final boolean showIgnored = FileExplorerPane.isShowIgnored();
+    final boolean showMapped = FileExplorerPane.isShowMapped();
+    Task<List<VisibilityUpdate>> task = new Task<List<VisibilityUpdate>>() {
       @Override
-      protected Void call() throws Exception {
-        for (SourceTreeItem sti : mapped) {
-          if (sti instanceof SourceTreeFile && !FileExplorerPane.isShowFiles()) {
-            files.add((SourceTreeFile) sti);
-          } else
-            newChildren.add(sti);
-        }
-        mapped.clear();
-        for (TreeItem sti : newChildren) {
-          if (sti instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) sti).showMapped();
-        }
-        for (SourceTreeItem sti : ignored) {
-          if (sti instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) sti).showMapped();
+      protected List<VisibilityUpdate> call() throws Exception {
+        List<VisibilityUpdate> updates = new ArrayList<>();
+        for (Map.Entry<SourceTreeDirectory, List<TreeItem>> entry : snapshot.entrySet()) {
+          if (isCancelled()) {
+            break;
+          }
+          VisibilityUpdate update = new VisibilityUpdate(entry.getKey(), showFiles, showIgnored, showMapped);
+          for (TreeItem ti : entry.getValue()) {
+            update.add((SourceTreeItem) ti);
+          }
+          Collections.sort(update.children, comparator);
+          updates.add(update);
         }
-        return null;
+        return updates;
       }
     };
-
     task.setOnSucceeded(event -> {
-      getChildren().setAll(newChildren);
-      sortChildren();
+      for (VisibilityUpdate update : task.getValue()) {
+        update.apply();
+      }
     });
-
-    new Thread(task).start();
+    return task;
   }
 
-  /**
-   * Creates a task to hide all this item's ignored items. The task is needed to
-   * prevent the UI thread from hanging due to the computations.
-   * <p/>
-   * First, it removes all the children with the IGNORED state and adds them to
-   * the ignored set, so that they can be shown at a later date. If a child is a
-   * directory, this method is called in that item. Then, calls this method for
-   * this item's children directories, that are in the hidden mapped items set.
-   * Finally, clears the children and adds the new list of items.
-   *
-   * @see #showIgnored()
+  /*
+   * Copies the items of the directories and of all their loaded
+   * subdirectories, going through the loaded tree once, without recursion.
+   * Called in the UI thread.
    */
-  public synchronized void hideIgnored() {
-    final ArrayList<TreeItem<String>> children = new ArrayList<>(getChildren());
-    Task<Void> task = new Task<Void>() {
-      @Override
-      protected Void call() throws Exception {
-        Set<TreeItem> toRemove = new HashSet<>();
-        for (TreeItem sti : children) {
-          SourceTreeItem item = (SourceTreeItem) sti;
-          if (item.getState() == PathState.IGNORED || sti instanceof SourceTreeLoadMore) {
-            ignored.add(item);
-            toRemove.add(sti);
-          }
-          if (item instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) item).hideIgnored();
-        }
-        children.removeAll(toRemove);
-        for (SourceTreeItem item : mapped) {
-          if (item instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) item).hideIgnored();
-        }
-        return null;
+  private static Map<SourceTreeDirectory, List<TreeItem>> takeItemsSnapshot(Collection<SourceTreeDirectory> roots) {
+    Map<SourceTreeDirectory, List<TreeItem>> result = new LinkedHashMap<>();
+    Deque<SourceTreeDirectory> pending = new ArrayDeque<>(roots);
+    while (!pending.isEmpty()) {
+      SourceTreeDirectory dir = pending.pop();
+      List<TreeItem> items = Collections.unmodifiableList(dir.getAllItems());
+      result.put(dir, items);
+      for (TreeItem item : items) {
+        if (item instanceof SourceTreeDirectory)
+          pending.push((SourceTreeDirectory) item);
       }
-    };
-    task.setOnSucceeded(event -> getChildren().setAll(children));
+    }
+    return result;
+  }
 
-    new Thread(task).start();
+  private List<TreeItem> getAllItems() {
+    List<TreeItem> all = new ArrayList<>(getChildren());
+    all.addAll(ignored);
+    all.addAll(mapped);
+    all.addAll(files);
+    return all;
   }
 
   /**
-   * Creates a task to show all this item's ignored items. The task is needed to
-   * prevent the UI thread from hanging due to the computations.
+   * The new children and hidden items of a directory, computed in the
+   * background and applied in the UI thread.
    * <p/>
-   * First, it adds all the items in the ignored set, which are the previously
-   * hidden items, and clears the set. We need to be careful in this step
-   * because if the hiddenFiles flag is true, then we must hide the ignored
-   * items that are files. Then makes a call to this method for all its children
-   * and hidden mapped items. Finally, clears the children, adds the new list of
-   * items, and sorts them.
-   *
-   * @see #sortChildren()
-   * @see #hideIgnored()
+   * <p>
+   * Since more items can be loaded, or removed, after the items are copied,
+   * the update is merged with the items of the directory when it's applied.
+   * </p>
    */
-  public synchronized void showIgnored() {
-    final ArrayList<TreeItem<String>> newChildren = new ArrayList<>(getChildren());
-    Task<Void> task = new Task<Void>() {
-      @Override
-      protected Void call() throws Exception {
-        for (SourceTreeItem sti : ignored) {
-          if (sti instanceof SourceTreeFile && !FileExplorerPane.isShowFiles()) {
-            files.add((SourceTreeFile) sti);
-          } else
-            newChildren.add(sti);
-        }
-        ignored.clear();
-        for (TreeItem sti : newChildren) {
-          if (sti instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) sti).showIgnored();
-        }
-        for (SourceTreeItem sti : mapped) {
-          if (sti instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) sti).showIgnored();
-        }
-        return null;
+  private static class VisibilityUpdate {
+    private final SourceTreeDirectory dir;
+    private final boolean showFiles;
+    private final boolean showIgnored;
+    private final boolean showMapped;
+    private final List<TreeItem<String>> children = new ArrayList<>();
+    private final Set<SourceTreeItem> ignored = new HashSet<>();
+    private final Set<SourceTreeItem> mapped = new HashSet<>();
+    private final Set<SourceTreeFile> files = new HashSet<>();
+
+    VisibilityUpdate(SourceTreeDirectory dir, boolean showFiles, boolean showIgnored, boolean showMapped) {
+      this.dir = dir;
+      this.showFiles = showFiles;
+      this.showIgnored = showIgnored;
+      this.showMapped = showMapped;
+    }
+
+    void add(SourceTreeItem item) {
+      boolean loadMore = item instanceof SourceTreeLoadMore;
+      if (!showMapped && (item.getState() == PathState.MAPPED || loadMore)) {
+        mapped.add(item);
+      } else if (!showIgnored && (item.getState() == PathState.IGNORED || loadMore)) {
+        ignored.add(item);
+      } else if (!showFiles && item instanceof SourceTreeFile) {
+        files.add((SourceTreeFile) item);
+      } else {
+        children.add(item);
       }
-    };
-    task.setOnSucceeded(event -> {
-      getChildren().setAll(newChildren);
-      sortChildren();
-    });
-    new Thread(task).start();
-  }
+    }
 
-  /**
-   * Creates a task to hide all this item's file items. The task is needed to
-   * prevent the UI thread from hanging due to the computations.
-   * <p/>
-   * First, it removes all the children that are a file and adds them to the
-   * files set, so that they can be shown at a later date. If a child is a
-   * directory, this method is called in that item. Finally, clears the children
-   * and adds the new list of items.
-   *
-   * @see #showFiles() ()
-   */
-  public synchronized void hideFiles() {
-    final ArrayList<TreeItem<String>> children = new ArrayList<>(getChildren());
-    Task<Void> task = new Task<Void>() {
-      @Override
-      protected Void call() throws Exception {
-        Set<TreeItem> toRemove = new HashSet<>();
-        for (TreeItem sti : children) {
-          if (sti instanceof SourceTreeFile) {
-            files.add((SourceTreeFile) sti);
-            toRemove.add(sti);
-          } else {
-            SourceTreeItem item = (SourceTreeItem) sti;
-            if (item instanceof SourceTreeDirectory)
-              ((SourceTreeDirectory) item).hideFiles();
-          }
-        }
-        children.removeAll(toRemove);
-        return null;
+    List<SourceTreeItem> getAllItems() {
+      List<SourceTreeItem> result = new ArrayList<>();
+      for (TreeItem<String> item : children) {
+        result.add((SourceTreeItem) item);
       }
-    };
-    task.setOnSucceeded(event -> getChildren().setAll(children));
-    new Thread(task).start();
-  }
+      result.addAll(ignored);
+      result.addAll(mapped);
+      result.addAll(files);
+      return result;
+    }
 
-  /**
-   * Creates a task to show all this item's file items. The task is needed to
-   * prevent the UI thread from hanging due to the computations.
-   * <p/>
-   * First, it adds all the items in the files set, which are the previously
-   * hidden items, and clears the set. Then makes a call to this method for all
-   * its children and hidden ignored/mapped items. Finally, clears the children,
-   * adds the new list of items, and sorts them.
-   *
-   * @see #sortChildren()
-   * @see #hideFiles() ()
-   */
-  public synchronized void showFiles() {
-    final ArrayList<TreeItem<String>> newChildren = new ArrayList<>(getChildren());
-    Task<Void> task = new Task<Void>() {
-      @Override
-      protected Void call() throws Exception {
-        for (SourceTreeItem sti : files) {
-          newChildren.add(sti);
-        }
-        files.clear();
-        for (TreeItem sti : newChildren) {
-          if (sti instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) sti).showFiles();
+    void apply() {
+      synchronized (dir) {
+        Set<TreeItem> current = new HashSet<>(dir.getAllItems());
+        Set<SourceTreeItem> known = new HashSet<>(getAllItems());
+        // drop the items removed since the update was computed and add the
+        // ones loaded since then
+        children.retainAll(current);
+        ignored.retainAll(current);
+        mapped.retainAll(current);
+        files.retainAll(current);
+        int childrenCount = children.size();
+        for (TreeItem item : current) {
+          if (!known.contains(item)) {
+            add((SourceTreeItem) item);
+          }
         }
-        for (SourceTreeItem sti : ignored) {
-          if (sti instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) sti).showFiles();
+        if (children.size() != childrenCount) {
+          Collections.sort(children, comparator);
         }
-        for (SourceTreeItem sti : mapped) {
-          if (sti instanceof SourceTreeDirectory)
-            ((SourceTreeDirectory) sti).showFiles();
+
+        dir.ignored = new HashSet<>(ignored);
+        dir.mapped = new HashSet<>(mapped);
+        dir.files = new HashSet<>(files);
+        if (!dir.getChildren().equals(children)) {
+          dir.getChildren().setAll(children);
         }
-        return null;
       }
-    };
-    task.setOnSucceeded(event -> {
-      getChildren().setAll(newChildren);
-      sortChildren();
-    });
-    new Thread(task).start();
+    }
   }
 
   /**
@@ -478,51 +422,63 @@ public class SourceTreeDirectory extends SourceTreeItem {
 
   /**
    * Creates a task to load the items to a temporary collection, otherwise the
-   * UI will hang while accessing the disk. Then, sets the new collection as the
-   * item's children.
+   * UI will hang while accessing the disk. Then, adds the new items to the
+   * item's children, or to the hidden items, in the UI thread. The items are
+   * only added to the directory in the UI thread, so that they aren't lost if
+   * the visibility of the items is updated at the same time.
    */
   public synchronized void loadMore() {
-    final ArrayList<TreeItem<String>> children = new ArrayList<>(getChildren());
     addToWatcher();
 
-    // Remove "loading" items
-    List<Object> toRemove = children.stream()
-      .filter(p -> p instanceof SourceTreeLoading || p instanceof SourceTreeLoadMore).collect(Collectors.toList());
-    children.removeAll(toRemove);
-
     // First we access the disk and save the loaded items to a temporary
     // collection
-    Task<Integer> task = new Task<Integer>() {
+    Task<List<SourceTreeItem>> task = new Task<List<SourceTreeItem>>() {
       @Override
-      protected Integer call() throws Exception {
+      protected List<SourceTreeItem> call() throws Exception {
         SortedMap<String, SourceItem> loaded = getDirectory().loadMore();
         long startTime = System.currentTimeMillis();
 
-        if (!loaded.isEmpty()) {
-          // Add new items
-          for (String sourceItem : loaded.keySet()) {
-            addChild(children, sourceItem);
+        List<SourceTreeItem> items = new ArrayList<>();
+        for (String sourceItem : loaded.keySet()) {
+          SourceTreeItem item = createChild(sourceItem);
+          if (item != null) {
+            items.add(item);
           }
-          // check if there's more files to load
-          if (directory.isStreamOpen())
-            children.add(new SourceTreeLoadMore());
         }
-        Collections.sort(children, comparator);
         LOGGER.debug("Done adding more child (nr: {} -> millis: {})", loaded.size(),
           (System.currentTimeMillis() - startTime));
-        return loaded.size();
+        return items;
       }
     };
 
     // After everything is loaded, we add all the items to the TreeView at once.
-    task.setOnSucceeded(event ->
-    // Set the children
-    getChildren().setAll(children));
+    task.setOnSucceeded(event -> addChildren(task.getValue()));
+
+    BackgroundTasks.submit(task);
+  }
+
+  private synchronized void addChildren(List<SourceTreeItem> items) {
+    final ArrayList<TreeItem<String>> children = new ArrayList<>(getChildren());
+
+    // Remove "loading" items
+    List<Object> toRemove = children.stream()
+      .filter(p -> p instanceof SourceTreeLoading || p instanceof SourceTreeLoadMore).collect(Collectors.toList());
+    children.removeAll(toRemove);
+    ignored.removeIf(p -> p instanceof SourceTreeLoadMore);
+    mapped.removeIf(p -> p instanceof SourceTreeLoadMore);
 
-    new Thread(task).start();
+    // Add new items
+    for (SourceTreeItem item : items) {
+      addChild(children, item);
+    }
+    // check if there's more files to load
+    if (directory.isStreamOpen())
+      children.add(new SourceTreeLoadMore());
+    Collections.sort(children, comparator);
+    getChildren().setAll(children);
   }
 
-  private void addChild(List children, String sourceItem) {
+  private SourceTreeItem createChild(String sourceItem) {
     Path sourceItemPath = Paths.get(sourceItem);
 
     PathState newState = PathCollection.getState(sourceItemPath);
@@ -531,7 +487,7 @@ public class SourceTreeDirectory extends SourceTreeItem {
     }
 
     SourceTreeItem item;
-    if (Files.isDirectory(sourceItemPath)) {
+    if (FileScanCache.isDirectory(sourceItemPath)) {
       if (newState != PathState.IGNORED) {
         item = new SourceTreeDirectory(sourceItemPath, directory.getChildDirectory(sourceItemPath), newState, this);
       } else {
@@ -542,26 +498,30 @@ public class SourceTreeDirectory extends SourceTreeItem {
     }
 
     if (item != null) {
-      switch (newState) {
-        case IGNORED:
-          addChildIgnored(children, item);
-          break;
-        case MAPPED:
-          addChildMapped(children, item);
-          break;
-        case NORMAL:
-          if (item instanceof SourceTreeFile)
-            if (FileExplorerPane.isShowFiles())
-              children.add(item);
-            else
-              files.add((SourceTreeFile) item);
-          else
-            children.add(item);
-          break;
-        default:
-      }
       PathCollection.addItem(item);
     }
+    return item;
+  }
+
+  private void addChild(List children, SourceTreeItem item) {
+    switch (item.getState()) {
+      case IGNORED:
+        addChildIgnored(children, item);
+        break;
+      case MAPPED:
+        addChildMapped(children, item);
+        break;
+      case NORMAL:
+        if (item instanceof SourceTreeFile)
+          if (FileExplorerPane.isShowFiles())
+            children.add(item);
+          else
+            files.add((SourceTreeFile) item);
+        else
+          children.add(item);
+        break;
+      default:
+    }
   }
 
   private void addChildIgnored(List children, SourceTreeItem item) {
@@ -6,6 +6,7 @@ import java.util.Observer;
 import org.roda.rodain.core.Constants.PathState;
 import org.roda.rodain.ui.rules.Rule;
 
+import javafx.application.Platform;
 import javafx.scene.control.TreeItem;
 
 /**
@@ -98,9 +99,14 @@ public class SourceTreeItem extends TreeItem<String> implements Observer {
 
   /**
    * Forces a visual update of the item by setting the value as "" and back to
-   * the original value.
+   * the original value. The update is done in the UI thread, since the state
+   * of the items is also changed in the background.
    */
   public void forceUpdate() {
+    if (!Platform.isFxApplicationThread()) {
+      Platform.runLater(this::forceUpdate);
+      return;
+    }
     String value = getValue();
     if (value != null && !"".equals(value)) {
       setValue("");
@@ -0,0 +1,96 @@
+package org.roda.rodain.ui.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the background tasks of the UI, like loading or hiding the items of a
+ * tree, in a shared executor instead of a new thread per task.
+ * <p/>
+ * <p>
+ * When the Java runtime has virtual threads they are used, otherwise the tasks
+ * are run by a pool with a bounded number of daemon threads. Tasks submitted
+ * with a key replace the previous task with the same key, which is canceled if
+ * it hasn't ended yet.
+ * </p>
+ *
+ * @since 18-10-2026.
+ */
+public class BackgroundTasks {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundTasks.class.getName());
+  private static final String THREAD_NAME_FORMAT = "background-task-%d";
+
+  private static final ExecutorService executor = createExecutor();
+  private static final Map<Object, Future<?>> keyedTasks = new ConcurrentHashMap<>();
+
+  private BackgroundTasks() {
+  }
+
+  private static ExecutorService createExecutor() {
+    try {
+      // only available since Java 21
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      LOGGER.debug("Virtual threads aren't available, using a thread pool", e);
+    }
+
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory factory = runnable -> {
+      Thread thread = new Thread(runnable, String.format(THREAD_NAME_FORMAT, count.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    };
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(), factory);
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Runs a task in the background.
+   *
+   * @param task
+   *          The task, usually a JavaFX Task
+   */
+  public static void submit(Runnable task) {
+    executor.execute(task);
+  }
+
+  /**
+   * Runs a task in the background, canceling the previous task submitted with
+   * the same key if it hasn't ended yet. Used for tasks whose result replaces
+   * the one of the previous task, like the ones updating the selected item.
+   *
+   * @param key
+   *          The key that identifies the kind of task
+   * @param task
+   *          The task, usually a JavaFX Task
+   */
+  public static void submit(Object key, FutureTask<?> task) {
+    Future<?> previous = keyedTasks.put(key, task);
+    if (previous != null) {
+      previous.cancel(true);
+    }
+    executor.execute(() -> {
+      try {
+        task.run();
+      } finally {
+        // only if a newer task with the same key hasn't replaced it
+        keyedTasks.remove(key, task);
+      }
+    });
+  }
+}
@@ -0,0 +1,118 @@
+package org.roda.rodain.core;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.roda.rodain.core.Constants.PathState;
+
+public class PathCollectionTest {
+  private static final Path DIR = Paths.get("/rodain-test/dir");
+  private static final Path FILE_A = DIR.resolve("a.txt");
+  private static final Path FILE_B = DIR.resolve("b.txt");
+
+  public PathCollectionTest() {
+    // do nothing
+  }
+
+  @After
+  public void reset() {
+    PathCollection.reset();
+  }
+
+  @Test
+  public void testDirectoryStateFollowsChildren() {
+    PathCollection.simpleAddPath(DIR);
+    PathCollection.simpleAddPath(FILE_A);
+    PathCollection.simpleAddPath(FILE_B);
+
+    PathCollection.addPath(FILE_A, PathState.MAPPED);
+    Assert.assertEquals(PathState.NORMAL, PathCollection.getState(DIR));
+
+    PathCollection.addPath(FILE_B, PathState.IGNORED);
+    Assert.assertEquals(PathState.MAPPED, PathCollection.getState(DIR));
+
+    PathCollection.addPath(FILE_A, PathState.NORMAL);
+    Assert.assertEquals(PathState.NORMAL, PathCollection.getState(DIR));
+  }
+
+  @Test
+  public void testStateIsAppliedToAllChildren() {
+    PathCollection.simpleAddPath(DIR);
+    PathCollection.simpleAddPath(FILE_A);
+    PathCollection.simpleAddPath(FILE_B);
+
+    PathCollection.addPath(DIR, PathState.IGNORED);
+    Assert.assertEquals(PathState.IGNORED, PathCollection.getState(FILE_A));
+    Assert.assertEquals(PathState.IGNORED, PathCollection.getState(FILE_B));
+
+    PathCollection.addPath(DIR, PathState.NORMAL);
+    Assert.assertEquals(PathState.NORMAL, PathCollection.getState(FILE_A));
+    Assert.assertEquals(PathState.NORMAL, PathCollection.getState(FILE_B));
+  }
+
+  @Test
+  public void testRemovePathAndChildren() {
+    Path otherDir = DIR.resolveSibling("other");
+    PathCollection.simpleAddPath(otherDir);
+    PathCollection.simpleAddPath(DIR);
+    PathCollection.addPath(FILE_A, PathState.MAPPED);
+    PathCollection.addPath(FILE_B, PathState.MAPPED);
+    Assert.assertEquals(PathState.MAPPED, PathCollection.getState(DIR));
+    Assert.assertEquals(4, PathCollection.getDescendantsStateCount(DIR.getParent()).getTotal());
+
+    PathCollection.removePathAndItem(DIR);
+    Assert.assertEquals(0, PathCollection.getChildrenStateCount(DIR).getTotal());
+    PathCollection.StateCount descendants = PathCollection.getDescendantsStateCount(DIR.getParent());
+    Assert.assertEquals(0, descendants.getMapped());
+    Assert.assertEquals(1, descendants.getTotal());
+    // the parent doesn't exist in the file system, so the path is not added
+    // back to the collection
+    Assert.assertEquals(PathState.NORMAL, PathCollection.getState(FILE_A));
+    Assert.assertEquals(0, PathCollection.getChildrenStateCount(DIR).getTotal());
+  }
+
+  @Test
+  public void testStateCountersAreUpdatedOnEachTransition() {
+    PathCollection.simpleAddPath(DIR);
+    PathCollection.simpleAddPath(FILE_A);
+    PathCollection.simpleAddPath(FILE_B);
+    PathCollection.addPath(FILE_A, PathState.MAPPED);
+
+    PathCollection.StateCount children = PathCollection.getChildrenStateCount(DIR);
+    Assert.assertEquals(1, children.getMapped());
+    Assert.assertEquals(1, children.getNormal());
+
+    PathCollection.StateCount descendants = PathCollection.getDescendantsStateCount(DIR.getParent());
+    Assert.assertEquals(1, descendants.getMapped());
+    Assert.assertEquals(3, descendants.getTotal());
+
+    PathCollection.removePathAndItem(FILE_A);
+    descendants = PathCollection.getDescendantsStateCount(DIR.getParent());
+    Assert.assertEquals(0, descendants.getMapped());
+    Assert.assertEquals(2, descendants.getTotal());
+  }
+
+  @Test
+  public void testBulkTransitionVerifiesAncestors() {
+    Path otherDir = DIR.resolveSibling("other");
+    Path otherFile = otherDir.resolve("c.txt");
+    PathCollection.simpleAddPath(DIR.getParent());
+    PathCollection.simpleAddPath(DIR);
+    PathCollection.simpleAddPath(otherDir);
+
+    Map<Path, PathState> pathStates = new HashMap<>();
+    pathStates.put(FILE_A, PathState.MAPPED);
+    pathStates.put(FILE_B, PathState.IGNORED);
+    pathStates.put(otherFile, PathState.MAPPED);
+    PathCollection.addPaths(pathStates);
+
+    Assert.assertEquals(PathState.MAPPED, PathCollection.getState(DIR));
+    Assert.assertEquals(PathState.MAPPED, PathCollection.getState(otherDir));
+    Assert.assertEquals(PathState.MAPPED, PathCollection.getState(DIR.getParent()));
+  }
+}
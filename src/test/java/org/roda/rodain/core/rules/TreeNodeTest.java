@@ -0,0 +1,45 @@
+package org.roda.rodain.core.rules;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TreeNodeTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public TreeNodeTest() {
+    // do nothing
+  }
+
+  @Test
+  public void testTotalsFollowTheChanges() throws IOException {
+    Path root = folder.getRoot().toPath();
+    Path dir = Files.createDirectory(root.resolve("dir"));
+    Path fileA = Files.write(dir.resolve("a.txt"), new byte[] {1, 2, 3, 4, 5});
+    Path fileB = Files.write(root.resolve("b.txt"), new byte[] {1, 2});
+
+    TreeNode rootNode = new TreeNode(root);
+    TreeNode dirNode = new TreeNode(dir);
+    rootNode.add(dirNode);
+    dirNode.add(fileA);
+    rootNode.add(fileB);
+    Assert.assertEquals(rootNode.getFullTreePaths().size(), rootNode.getFullTreePathsCount());
+    Assert.assertEquals(7, rootNode.getTreeSize());
+
+    dirNode.remove(fileA);
+    Assert.assertEquals(3, rootNode.getFullTreePathsCount());
+    Assert.assertEquals(2, rootNode.getTreeSize());
+
+    dirNode.add(fileA);
+    rootNode.flatten();
+    Assert.assertEquals(2, rootNode.getChildren().size());
+    Assert.assertEquals(3, rootNode.getFullTreePathsCount());
+    Assert.assertEquals(7, rootNode.getTreeSize());
+  }
+}
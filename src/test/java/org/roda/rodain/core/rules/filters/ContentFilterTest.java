@@ -0,0 +1,75 @@
+package org.roda.rodain.core.rules.filters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.roda.rodain.core.PathCollection;
+
+public class ContentFilterTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public ContentFilterTest() {
+    // do nothing
+  }
+
+  @After
+  public void reset() {
+    IgnoredFilter.clearIgnoreRules();
+    PathCollection.reset();
+  }
+
+  @Test
+  public void testDescendantOfMappedDirectoryIsFiltered() throws IOException {
+    Path dir = folder.newFolder("mapped").toPath();
+    Path sub = Files.createDirectory(dir.resolve("sub"));
+    Path file = Files.createFile(sub.resolve("a.txt"));
+    Path other = Files.createFile(folder.getRoot().toPath().resolve("b.txt"));
+
+    ContentFilter filter = new ContentFilter();
+    filter.addMapped(dir.toString());
+    Assert.assertTrue(filter.filter(sub.toString()));
+    Assert.assertTrue(filter.filter(file.toString()));
+    Assert.assertFalse(filter.filter(other.toString()));
+  }
+
+  @Test
+  public void testDescendantOfIgnoredNameIsFiltered() throws IOException {
+    IgnoredFilter.addIgnoreRule("\\.git");
+    Path git = folder.newFolder(".git").toPath();
+    Path objects = Files.createDirectory(git.resolve("objects"));
+    Path file = Files.createFile(objects.resolve("a.txt"));
+    Path other = Files.createFile(folder.getRoot().toPath().resolve("b.txt"));
+
+    ContentFilter filter = new ContentFilter();
+    Assert.assertTrue(filter.filter(file.toString()));
+    Assert.assertTrue(filter.filter(objects.toString()));
+    Assert.assertFalse(filter.filter(other.toString()));
+  }
+
+  @Test
+  public void testVerdictsAreDiscardedWhenTheListsChange() throws IOException {
+    Path ignoredDir = folder.newFolder("ignored").toPath();
+    Path ignoredFile = Files.createFile(ignoredDir.resolve("a.txt"));
+    Path mappedDir = folder.newFolder("mapped").toPath();
+    Path mappedFile = Files.createFile(mappedDir.resolve("b.txt"));
+
+    ContentFilter filter = new ContentFilter();
+    // keeps the verdicts of both directories
+    Assert.assertFalse(filter.filter(ignoredFile.toString()));
+    Assert.assertFalse(filter.filter(mappedFile.toString()));
+
+    filter.addIgnored(ignoredDir.toString());
+    Assert.assertTrue(filter.filter(ignoredFile.toString()));
+    Assert.assertFalse(filter.filter(mappedFile.toString()));
+
+    filter.addMapped(mappedDir.toString());
+    Assert.assertTrue(filter.filter(mappedFile.toString()));
+  }
+}
@@ -0,0 +1,71 @@
+package org.roda.rodain.core.rules.filters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.roda.rodain.core.source.FileScanCache;
+
+public class IgnoredFilterTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public IgnoredFilterTest() {
+    // do nothing
+  }
+
+  @After
+  public void clearRules() {
+    IgnoredFilter.clearIgnoreRules();
+  }
+
+  @Test
+  public void testDirectoryWithOnlyIgnoredFilesIsIgnored() throws IOException {
+    IgnoredFilter.addIgnoreRule("Thumbs\\.db");
+    Path dir = folder.newFolder("photos").toPath();
+    Path sub = Files.createDirectory(dir.resolve("sub"));
+    Files.createFile(sub.resolve("Thumbs.db"));
+    Assert.assertTrue(IgnoredFilter.isIgnored(dir));
+    Assert.assertTrue(IgnoredFilter.isIgnoredName("Thumbs.db"));
+
+    Files.createFile(sub.resolve("photo.jpg"));
+    // make sure the change is noticed even if the file system has a coarse
+    // modification time
+    Files.setLastModifiedTime(sub, FileTime.fromMillis(Files.getLastModifiedTime(sub).toMillis() + 2000));
+    // the modification time of the parent didn't change, so the change is
+    // noticed when the subdirectory is listed again, as when it's walked
+    FileScanCache.listDirectory(sub);
+    Assert.assertFalse(IgnoredFilter.isIgnored(dir));
+    Assert.assertFalse(IgnoredFilter.isIgnored(sub));
+  }
+
+  @Test
+  public void testNestedChangeIsNoticedByAncestors() throws IOException {
+    IgnoredFilter.addIgnoreRule("Thumbs\\.db");
+    Path dir = folder.newFolder("photos").toPath();
+    Path deep = Files.createDirectories(dir.resolve("a").resolve("b"));
+    Path photo = Files.createFile(deep.resolve("photo.jpg"));
+    Assert.assertFalse(IgnoredFilter.isIgnored(dir));
+
+    Files.delete(photo);
+    Files.createFile(deep.resolve("Thumbs.db"));
+    Files.setLastModifiedTime(deep, FileTime.fromMillis(Files.getLastModifiedTime(deep).toMillis() + 2000));
+    FileScanCache.listDirectory(deep);
+    Assert.assertTrue(IgnoredFilter.isIgnored(dir));
+  }
+
+  @Test
+  public void testRulesWithTheSameNamedGroup() {
+    IgnoredFilter.addIgnoreRule("(?<name>a)b");
+    IgnoredFilter.addIgnoreRule("(?<name>c)d");
+    Assert.assertTrue(IgnoredFilter.isIgnoredName("ab"));
+    Assert.assertTrue(IgnoredFilter.isIgnoredName("cd"));
+    Assert.assertFalse(IgnoredFilter.isIgnoredName("ad"));
+  }
+}
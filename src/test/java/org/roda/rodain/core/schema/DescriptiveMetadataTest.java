@@ -0,0 +1,80 @@
+package org.roda.rodain.core.schema;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeSet;
+
+import org.apache.commons.net.util.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DescriptiveMetadataTest {
+  private static final String CONTENT = "<title>Ação número 1 – ŐŰ</title>";
+
+  public DescriptiveMetadataTest() {
+    // do nothing
+  }
+
+  @Test
+  public void testContentIsSerializedInBase64() {
+    DescriptiveMetadata metadata = new DescriptiveMetadata();
+    metadata.setContentDecoded(CONTENT);
+
+    DescriptiveMetadata deserialized = new DescriptiveMetadata();
+    deserialized.setContent(metadata.getContent());
+    deserialized.setContentCharset(metadata.getContentCharset());
+    Assert.assertEquals(metadata.getContent(), deserialized.getContent());
+    Assert.assertEquals(StandardCharsets.UTF_8.name(), deserialized.getContentCharset());
+    Assert.assertEquals(CONTENT, deserialized.getContentDecoded());
+  }
+
+  @Test
+  public void testLegacyContentIsDecodedWithThePlatformCharset() {
+    Charset legacy = Charset.defaultCharset();
+    // the content of the plans saved before the charset was serialized
+    String encoded = new String(Base64.encodeBase64(CONTENT.getBytes(legacy)), StandardCharsets.US_ASCII);
+
+    DescriptiveMetadata deserialized = new DescriptiveMetadata();
+    deserialized.setContent(encoded);
+    Assert.assertEquals(legacy.name(), deserialized.getContentCharset());
+    Assert.assertEquals(new String(CONTENT.getBytes(legacy), legacy), deserialized.getContentDecoded());
+    // the content is kept in its charset until it's changed
+    Assert.assertEquals(encoded, deserialized.getContent());
+
+    deserialized.setContentDecoded(CONTENT);
+    Assert.assertEquals(StandardCharsets.UTF_8.name(), deserialized.getContentCharset());
+    Assert.assertEquals(CONTENT, deserialized.getContentDecoded());
+  }
+
+  @Test
+  public void testContentIsDecodedWithTheSerializedCharset() {
+    String windows1252 = "<title>Ação</title>";
+    Charset charset = Charset.forName("windows-1252");
+    DescriptiveMetadata deserialized = new DescriptiveMetadata();
+    deserialized.setContentCharset(charset.name());
+    deserialized.setContent(new String(Base64.encodeBase64(windows1252.getBytes(charset)), StandardCharsets.US_ASCII));
+    Assert.assertEquals(windows1252, deserialized.getContentDecoded());
+  }
+
+  @Test
+  public void testChangedContentIsNotShared() {
+    DescriptiveMetadata metadata = new DescriptiveMetadata();
+    metadata.setContentDecoded(CONTENT);
+    metadata.setValues(new TreeSet<>());
+
+    DescriptiveMetadata copy = metadata.clone();
+    copy.setContentDecoded("<title/>");
+    Assert.assertEquals(CONTENT, metadata.getContentDecoded());
+    Assert.assertEquals("<title/>", copy.getContentDecoded());
+  }
+
+  @Test
+  public void testCloneWithoutValues() {
+    DescriptiveMetadata metadata = new DescriptiveMetadata();
+    metadata.setContentDecoded(CONTENT);
+
+    DescriptiveMetadata copy = metadata.clone();
+    Assert.assertFalse(copy.hasValues());
+    Assert.assertEquals(CONTENT, copy.getContentDecoded());
+  }
+}
@@ -0,0 +1,78 @@
+package org.roda.rodain.core.source;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileScanCacheTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public FileScanCacheTest() {
+    // do nothing
+  }
+
+  @After
+  public void reset() {
+    FileScanCache.clear();
+  }
+
+  @Test
+  public void testListingIsSavedAndLoaded() throws IOException {
+    Path dir = folder.newFolder("source").toPath();
+    Path file = Files.write(dir.resolve("a.txt"), new byte[] {1, 2, 3});
+    Files.createDirectory(dir.resolve("sub"));
+    FileScanCache.listDirectory(dir);
+
+    Path cacheFile = folder.getRoot().toPath().resolve("cache.bin");
+    FileScanCache.save(cacheFile);
+    FileScanCache.clear();
+    Assert.assertNull(FileScanCache.getListing(dir));
+
+    FileScanCache.load(cacheFile);
+    List<Path> listing = FileScanCache.getListing(dir);
+    Assert.assertNotNull(listing);
+    Assert.assertEquals(2, listing.size());
+    Assert.assertEquals(3, FileScanCache.getAttributes(file).size());
+    Assert.assertTrue(FileScanCache.isDirectory(dir.resolve("sub")));
+  }
+
+  @Test
+  public void testLoadedAttributesAreReadAgain() throws IOException {
+    Path dir = folder.newFolder("source").toPath();
+    Path file = Files.write(dir.resolve("a.txt"), new byte[] {1, 2, 3});
+    FileScanCache.listDirectory(dir);
+
+    Path cacheFile = folder.getRoot().toPath().resolve("cache.bin");
+    FileScanCache.save(cacheFile);
+    FileScanCache.clear();
+    // the file is changed in place, which doesn't change its directory
+    Files.write(file, new byte[] {1, 2, 3, 4, 5});
+
+    FileScanCache.load(cacheFile);
+    Assert.assertNotNull(FileScanCache.getListing(dir));
+    Assert.assertEquals(5, FileScanCache.getAttributes(file).size());
+  }
+
+  @Test
+  public void testModifiedDirectoryIsListedAgain() throws IOException {
+    Path dir = folder.newFolder("source").toPath();
+    Files.createFile(dir.resolve("a.txt"));
+    Assert.assertEquals(1, FileScanCache.listDirectory(dir).size());
+
+    Files.createFile(dir.resolve("b.txt"));
+    // make sure the change is noticed even if the file system has a coarse
+    // modification time
+    Files.setLastModifiedTime(dir, FileTime.fromMillis(Files.getLastModifiedTime(dir).toMillis() + 2000));
+    Assert.assertNull(FileScanCache.getListing(dir));
+    Assert.assertEquals(2, FileScanCache.listDirectory(dir).size());
+  }
+}